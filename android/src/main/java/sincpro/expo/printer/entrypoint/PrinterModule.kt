@@ -12,30 +12,90 @@ import android.content.Context
 import com.sincpro.printer.SincproPrinterSdk
 import com.sincpro.printer.domain.Alignment
 import com.sincpro.printer.domain.BarcodeType
+import com.sincpro.printer.domain.ConnectionConfig
 import com.sincpro.printer.domain.CutterConfig
 import com.sincpro.printer.domain.Density
 import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.LabelFileFormat
+import com.sincpro.printer.domain.LabelImport
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.MetricsSnapshot
 import com.sincpro.printer.domain.MediaConfig
 import com.sincpro.printer.domain.MediaType
 import com.sincpro.printer.domain.Orientation
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintImage
+import com.sincpro.printer.domain.PrintJobEvent
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintPhase
 import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.PrinterFaultException
+import com.sincpro.printer.domain.PrinterStatus
 import com.sincpro.printer.domain.Receipt
 import com.sincpro.printer.domain.ReceiptLine
+import com.sincpro.printer.domain.SerialField
 import com.sincpro.printer.domain.Speed
+import com.sincpro.printer.domain.ThermalPolicy
+import com.sincpro.printer.domain.TextStyle
+import com.sincpro.printer.domain.time
+import com.sincpro.printer.infrastructure.TraceFile
+import com.sincpro.printer.service.bixolon.PreparedReceipt
 import expo.modules.kotlin.functions.Coroutine
 import expo.modules.kotlin.modules.Module
 import expo.modules.kotlin.modules.ModuleDefinition
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
 
 class PrinterModule : Module() {
     private lateinit var sdk: SincproPrinterSdk
+    private val moduleScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+    // Recibos preparados por id, con las imágenes ya decodificadas de cada uno
+    private class PreparedHandle(
+        val receipt: PreparedReceipt,
+        val images: MutableMap<String, PrintImage>,
+    )
+
+    private val preparedReceipts = ConcurrentHashMap<String, PreparedHandle>()
+
+    @Volatile
+    private var statusUpdates: Job? = null
 
     override fun definition() =
         ModuleDefinition {
             Name("SincproPrinter")
 
+            Events("onPrintJob", "onConnectionStateChange", "onLabelProgress", "onStatusChange")
+
             OnCreate {
                 val context = appContext.reactContext as Context
                 sdk = SincproPrinterSdk(context)
+
+                moduleScope.launch {
+                    sdk.bixolon.print.jobEvents.collect { event ->
+                        sendEvent("onPrintJob", jobEventToMap(event))
+                    }
+                }
+
+                moduleScope.launch {
+                    sdk.bixolon.connectivity.connectionState.collect { state ->
+                        sendEvent("onConnectionStateChange", mapOf("state" to state.name))
+                    }
+                }
+            }
+
+            OnDestroy {
+                preparedReceipts.values.forEach { it.receipt.discard() }
+                preparedReceipts.clear()
+                moduleScope.cancel()
             }
 
             // ============================================================
@@ -96,6 +156,21 @@ class PrinterModule : Module() {
                     .getOrThrow()
             }
 
+            AsyncFunction("connectAny") Coroutine { candidates: List<Map<String, Any?>>, staggerMs: Double? ->
+                val winner =
+                    sdk.bixolon.connectivity
+                        .connectAny(
+                            candidates = candidates.map { parseConnectionCandidate(it) },
+                            staggerMs = staggerMs?.toLong() ?: 250,
+                        ).getOrThrow()
+                mapOf(
+                    "type" to winner.type.name.lowercase(),
+                    "address" to winner.address,
+                    "port" to winner.port,
+                    "timeoutMs" to winner.timeoutMs,
+                )
+            }
+
             AsyncFunction("disconnect") Coroutine { ->
                 sdk.bixolon.connectivity
                     .disconnect()
@@ -106,19 +181,33 @@ class PrinterModule : Module() {
                 sdk.bixolon.connectivity.isConnected()
             }
 
+            Function("getConnectionState") {
+                sdk.bixolon.connectivity.connectionState.value.name
+            }
+
             AsyncFunction("getStatus") Coroutine { ->
                 val status =
                     sdk.bixolon.connectivity
                         .getStatus()
                         .getOrThrow()
-                mapOf(
-                    "connectionState" to status.connectionState.name,
-                    "hasPaper" to status.hasPaper,
-                    "isCoverOpen" to status.isCoverOpen,
-                    "isOverheated" to status.isOverheated,
-                    "hasError" to status.hasError,
-                    "errorMessage" to status.errorMessage,
-                )
+                statusToMap(status)
+            }
+
+            // Un solo lector de estado en segundo plano mientras JS escucha onStatusChange
+            Function("startStatusUpdates") {
+                if (statusUpdates?.isActive != true) {
+                    statusUpdates =
+                        moduleScope.launch {
+                            sdk.bixolon.connectivity.statusFlow().collect { status ->
+                                sendEvent("onStatusChange", statusToMap(status))
+                            }
+                        }
+                }
+            }
+
+            Function("stopStatusUpdates") {
+                statusUpdates?.cancel()
+                statusUpdates = null
             }
 
             AsyncFunction("getInfo") Coroutine { ->
@@ -171,6 +260,28 @@ class PrinterModule : Module() {
                             "enabled" to config.autoCutter.enabled,
                             "fullCut" to config.autoCutter.fullCut,
                         ),
+                    "autoSpeed" to config.autoSpeed,
+                )
+            }
+
+            // Ritmo de tiradas largas según la temperatura estimada del cabezal
+            AsyncFunction("setThermalPolicy") Coroutine { policy: Map<String, Any?> ->
+                sdk.bixolon.thermal
+                    .setPolicy(parseThermalPolicy(policy))
+                    .getOrThrow()
+            }
+
+            Function("getThermalState") {
+                val state = sdk.bixolon.thermal.state()
+                mapOf(
+                    "level" to state.level,
+                    "maxLevel" to state.maxLevel,
+                    "speed" to state.speed?.name?.lowercase(),
+                    "density" to state.density?.name?.lowercase(),
+                    "gapMs" to state.gapMs,
+                    "heat" to state.heat,
+                    "overheats" to state.overheats,
+                    "labelsPerHour" to state.labelsPerHour,
                 )
             }
 
@@ -179,23 +290,27 @@ class PrinterModule : Module() {
             // ============================================================
 
             AsyncFunction("printText") Coroutine { text: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val fontSize = parseFontSize(options?.get("fontSize") as? String)
                 val alignment = parseAlignment(options?.get("alignment") as? String)
                 val bold = options?.get("bold") as? Boolean ?: false
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printText(text, fontSize, alignment, bold, media)
+                    .printText(text, fontSize, alignment, bold, media, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
             }
 
             AsyncFunction("printTexts") Coroutine { texts: List<String>, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val fontSize = parseFontSize(options?.get("fontSize") as? String)
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printTexts(texts, fontSize, media)
+                    .printTexts(texts, fontSize, media, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
             }
 
             // ============================================================
@@ -203,24 +318,28 @@ class PrinterModule : Module() {
             // ============================================================
 
             AsyncFunction("printQR") Coroutine { data: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val size = (options?.get("size") as? Number)?.toInt() ?: 5
                 val alignment = parseAlignment(options?.get("alignment") as? String)
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printQR(data, size, alignment, media)
+                    .printQR(data, size, alignment, media, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
             }
 
             AsyncFunction("printBarcode") Coroutine { data: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val type = parseBarcodeType(options?.get("type") as? String)
                 val height = (options?.get("height") as? Number)?.toInt() ?: 60
                 val alignment = parseAlignment(options?.get("alignment") as? String)
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printBarcode(data, type, height, alignment, media)
+                    .printBarcode(data, type, height, alignment, media, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
             }
 
             // ============================================================
@@ -228,22 +347,26 @@ class PrinterModule : Module() {
             // ============================================================
 
             AsyncFunction("printImageBase64") Coroutine { base64Data: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val alignment = parseAlignment(options?.get("alignment") as? String)
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printImageBase64(base64Data, alignment, media)
+                    .printImageBase64(base64Data, alignment, media, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
             }
 
             AsyncFunction("printPdfBase64") Coroutine { base64Data: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val page = (options?.get("page") as? Number)?.toInt() ?: 1
                 val alignment = parseAlignment(options?.get("alignment") as? String)
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printPdfBase64(base64Data, page, alignment, media)
+                    .printPdfBase64(base64Data, page, alignment, media, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
             }
 
             Function("getPdfPageCount") { base64Data: String ->
@@ -255,13 +378,71 @@ class PrinterModule : Module() {
             // ============================================================
 
             AsyncFunction("printReceipt") Coroutine { receiptData: Map<String, Any?>, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val receipt = parseReceipt(receiptData)
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
                 val copies = (options?.get("copies") as? Number)?.toInt() ?: 1
 
                 sdk.bixolon.print
-                    .printReceipt(receipt, media, copies)
+                    .printReceipt(receipt, media, copies, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
+            }
+
+            // ============================================================
+            // PRINT API - Prepared receipts (compiled while being edited)
+            // ============================================================
+
+            AsyncFunction("prepareReceipt") Coroutine { receiptData: Map<String, Any?>, options: Map<String, Any?>? ->
+                val images = ConcurrentHashMap<String, PrintImage>()
+                val receipt = parseReceipt(receiptData, images)
+                val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
+                val copies = (options?.get("copies") as? Number)?.toInt() ?: 1
+
+                val id = UUID.randomUUID().toString()
+                preparedReceipts[id] = PreparedHandle(sdk.bixolon.print.prepare(receipt, media, copies), images)
+                id
+            }
+
+            AsyncFunction("updatePreparedReceipt") Coroutine { id: String, receiptData: Map<String, Any?> ->
+                val handle = preparedReceipts[id] ?: throw Exception("Unknown prepared receipt: $id")
+                handle.receipt.update(parseReceipt(receiptData, handle.images))
+            }
+
+            AsyncFunction("commitPreparedReceipt") Coroutine { id: String, options: Map<String, Any?>? ->
+                val handle = preparedReceipts.remove(id) ?: throw Exception("Unknown prepared receipt: $id")
+                val jobOptions = parseJobOptions(options)
+                handle.receipt.commit(jobOptions).getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
+            }
+
+            Function("discardPreparedReceipt") { id: String ->
+                preparedReceipts.remove(id)?.receipt?.discard()
+            }
+
+            // ============================================================
+            // PRINT API - Reprint from the compiled job cache
+            // ============================================================
+
+            AsyncFunction("reprint") Coroutine { jobId: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
+                val copies = (options?.get("copies") as? Number)?.toInt() ?: 1
+
+                sdk.bixolon.print
+                    .reprint(jobId, copies, jobOptions)
+                    .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
+            }
+
+            Function("getRecentJobs") {
+                sdk.bixolon.print.recentJobs().map { job ->
+                    mapOf(
+                        "jobId" to job.jobId,
+                        "sentAtMs" to job.sentAtMs,
+                        "labels" to job.labels,
+                        "retainedBytes" to job.retainedBytes,
+                    )
+                }
             }
 
             // ============================================================
@@ -269,13 +450,120 @@ class PrinterModule : Module() {
             // ============================================================
 
             AsyncFunction("printKeyValue") Coroutine { key: String, value: String, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
                 val fontSize = parseFontSize(options?.get("fontSize") as? String)
                 val bold = options?.get("bold") as? Boolean ?: false
                 val media = parseMediaConfig(options?.get("media") as? Map<String, Any?>)
 
                 sdk.bixolon.print
-                    .printKeyValue(key, value, fontSize, bold, media)
+                    .printKeyValue(key, value, fontSize, bold, media, jobOptions)
+                    .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
+            }
+
+            // ============================================================
+            // PRINT API - Numbered label runs
+            // ============================================================
+
+            AsyncFunction("printLabelRun") Coroutine { templateData: Map<String, Any?>, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
+                val template = parseLabelTemplate(templateData)
+                val startSerial = (options?.get("startSerial") as? Number)?.toLong() ?: 1
+                val count = (options?.get("count") as? Number)?.toInt() ?: 1
+                val step = (options?.get("step") as? Number)?.toLong() ?: 1
+                val copies = (options?.get("copies") as? Number)?.toInt() ?: 1
+
+                sdk.bixolon.print
+                    .printLabelRun(template, startSerial, count, step, copies, jobOptions)
                     .getOrThrow()
+                sdk.bixolon.jobIdFor(jobOptions)
+            }
+
+            // ============================================================
+            // PRINT API - Label import (CSV / JSON files)
+            // ============================================================
+
+            AsyncFunction("printLabelsFromFile") Coroutine { uri: String, templateData: Map<String, Any?>, options: Map<String, Any?>? ->
+                val jobOptions = parseJobOptions(options)
+                val template = parseLabelTemplate(templateData)
+                val import = parseLabelImport(options)
+                val importId = options?.get("importId") as? String ?: uri
+                val resume = options?.get("resume") as? Boolean ?: true
+
+                val result =
+                    sdk.bixolon.imports
+                        .printFromFile(uri, import, template, importId, resume, jobOptions) { progress ->
+                            sendEvent(
+                                "onLabelProgress",
+                                mapOf(
+                                    "importId" to importId,
+                                    "jobId" to progress.jobId,
+                                    "index" to progress.index,
+                                    "printed" to progress.printed,
+                                ),
+                            )
+                        }.getOrThrow()
+                mapOf(
+                    "jobId" to jobOptions.jobId,
+                    "resumedFrom" to result.resumedFrom,
+                    "printed" to result.printed,
+                )
+            }
+
+            Function("getImportCheckpoint") { importId: String ->
+                sdk.bixolon.imports.checkpoint(importId)
+            }
+
+            Function("clearImportCheckpoint") { importId: String ->
+                sdk.bixolon.imports.clearCheckpoint(importId)
+            }
+
+            // ============================================================
+            // PRINT API - Label runs (media session)
+            // ============================================================
+
+            Function("beginLabelRun") {
+                sdk.bixolon.print.beginLabelRun()
+            }
+
+            Function("endLabelRun") {
+                sdk.bixolon.print.endLabelRun()
+            }
+
+            // ============================================================
+            // METRICS API
+            // ============================================================
+
+            Function("getMetrics") {
+                metricsToMap(sdk.bixolon.metrics.snapshot())
+            }
+
+            Function("resetMetrics") {
+                sdk.bixolon.metrics.reset()
+            }
+
+            // ============================================================
+            // TRACE API
+            // ============================================================
+
+            Function("startTrace") {
+                sdk.bixolon.recorder.start()
+            }
+
+            AsyncFunction("stopTrace") Coroutine { ->
+                val trace = sdk.bixolon.recorder.stop()
+                val context = appContext.reactContext as Context
+                val file = File(context.cacheDir, "sincpro-trace-${trace.startedAtMs}.sptr")
+                withContext(Dispatchers.IO) {
+                    file.outputStream().buffered().use { TraceFile.write(trace, it) }
+                }
+                mapOf(
+                    "path" to file.absolutePath,
+                    "jobs" to trace.jobCount,
+                    "events" to trace.events.size,
+                    "durationMs" to trace.durationNanos / 1_000_000.0,
+                    "truncated" to trace.truncated,
+                )
             }
         }
 
@@ -283,6 +571,79 @@ class PrinterModule : Module() {
     // PARSERS
     // ============================================================
 
+    private fun parseConnectionCandidate(candidate: Map<String, Any?>): ConnectionConfig {
+        val timeoutMs = (candidate["timeoutMs"] as? Number)?.toLong() ?: 10000
+        val address = candidate["address"] as? String ?: ""
+        return when ((candidate["type"] as? String)?.lowercase()) {
+            "bluetooth" -> ConnectionConfig.bluetooth(address, timeoutMs)
+            "wifi" -> ConnectionConfig.wifi(address, (candidate["port"] as? Number)?.toInt() ?: 9100, timeoutMs)
+            "usb" -> ConnectionConfig.usb()
+            else -> throw IllegalArgumentException("Unknown connection type: ${candidate["type"]}")
+        }
+    }
+
+    private fun parseJobOptions(options: Map<String, Any?>?): PrintJobOptions {
+        if (options == null) return PrintJobOptions()
+        val segmentDots = (options["segmentDots"] as? Number)?.toInt() ?: 0
+        val idempotencyKey = options["idempotencyKey"] as? String
+        val verify = options["verify"] as? Boolean ?: false
+        val deadlineMs = (options["deadlineMs"] as? Number)?.toLong() ?: 0L
+        val resendUncertain = options["resendUncertain"] as? Boolean ?: false
+        // Sin jobId, un reintento con la misma clave conserva el id del primer intento
+        val jobId = options["jobId"] as? String ?: idempotencyKey ?: PrintJobOptions.newJobId()
+        return PrintJobOptions(jobId, segmentDots, idempotencyKey, verify, deadlineMs, resendUncertain)
+    }
+
+    private fun metricsToMap(snapshot: MetricsSnapshot): Map<String, Any?> =
+        mapOf(
+            "takenAt" to snapshot.takenAtMs,
+            "printers" to
+                snapshot.printers.map { printer ->
+                    mapOf(
+                        "printerId" to printer.printerId,
+                        "payloadBytes" to printer.payloadBytes,
+                        "phases" to
+                            printer.phases.entries.associate { (phase, stats) ->
+                                phase.name to
+                                    mapOf(
+                                        "count" to stats.count,
+                                        "p50Ms" to stats.p50Ms,
+                                        "p95Ms" to stats.p95Ms,
+                                        "p99Ms" to stats.p99Ms,
+                                        "maxMs" to stats.maxMs,
+                                        "totalMs" to stats.totalMs,
+                                    )
+                            },
+                    )
+                },
+        )
+
+    private fun statusToMap(status: PrinterStatus): Map<String, Any?> =
+        mapOf(
+            "connectionState" to status.connectionState.name,
+            "hasPaper" to status.hasPaper,
+            "isCoverOpen" to status.isCoverOpen,
+            "isOverheated" to status.isOverheated,
+            "hasError" to status.hasError,
+            "errorMessage" to status.errorMessage,
+            "isBuildingImage" to status.isBuildingImage,
+            "isPrinting" to status.isPrinting,
+            "isCutterJammed" to status.isCutterJammed,
+            "hasSensingError" to status.hasSensingError,
+            "isRibbonOut" to status.isRibbonOut,
+            "isPausedInPeeler" to status.isPausedInPeeler,
+        )
+
+    private fun jobEventToMap(event: PrintJobEvent): Map<String, Any?> =
+        mapOf(
+            "jobId" to event.jobId,
+            "phase" to event.phase.name,
+            "timestamp" to event.timestampMs,
+            "elapsedMs" to event.elapsedMs,
+            "errorMessage" to event.errorMessage,
+            "printerFault" to (event.cause is PrinterFaultException),
+        )
+
     private fun parseFontSize(value: String?): FontSize =
         when (value?.lowercase()) {
             "small" -> FontSize.SMALL
@@ -364,8 +725,9 @@ class PrinterModule : Module() {
         val speed = parseSpeed(data["speed"] as? String)
         val orientation = parseOrientation(data["orientation"] as? String)
         val autoCutter = parseCutterConfig(data["autoCutter"] as? Map<String, Any?>)
+        val autoSpeed = data["autoSpeed"] as? Boolean ?: false
 
-        return PrinterConfig(marginLeft, marginTop, density, speed, orientation, autoCutter)
+        return PrinterConfig(marginLeft, marginTop, density, speed, orientation, autoCutter, autoSpeed)
     }
 
     private fun parseDensity(value: String?): Density =
@@ -377,6 +739,20 @@ class PrinterModule : Module() {
             else -> Density.MEDIUM
         }
 
+    private fun parseThermalPolicy(data: Map<String, Any?>): ThermalPolicy {
+        val defaults = ThermalPolicy.DEFAULT
+        return ThermalPolicy(
+            enabled = data["enabled"] as? Boolean ?: true,
+            minSpeed = (data["minSpeed"] as? String)?.let(::parseSpeed) ?: defaults.minSpeed,
+            minDensity = (data["minDensity"] as? String)?.let(::parseDensity),
+            gapStepMs = (data["gapStepMs"] as? Number)?.toLong() ?: defaults.gapStepMs,
+            maxGapMs = (data["maxGapMs"] as? Number)?.toLong() ?: defaults.maxGapMs,
+            coolingMs = (data["coolingMs"] as? Number)?.toLong() ?: defaults.coolingMs,
+            heatBudgetDots = (data["heatBudgetDots"] as? Number)?.toLong() ?: defaults.heatBudgetDots,
+            statusEveryJobs = (data["statusEveryJobs"] as? Number)?.toInt() ?: defaults.statusEveryJobs,
+        )
+    }
+
     private fun parseSpeed(value: String?): Speed =
         when (value?.lowercase()) {
             "slow" -> Speed.SLOW
@@ -400,24 +776,119 @@ class PrinterModule : Module() {
         return CutterConfig(enabled, fullCut)
     }
 
-    private fun parseReceipt(data: Map<String, Any?>): Receipt {
-        val header = parseReceiptLines(data["header"] as? List<*>)
-        val body = parseReceiptLines(data["body"] as? List<*>)
-        val footer = parseReceiptLines(data["footer"] as? List<*>)
+    private fun parseLabelTemplate(data: Map<String, Any?>): LabelTemplate {
+        val elements =
+            (data["elements"] as? List<*>).orEmpty().mapNotNull { item ->
+                parseLabelElement(item as? Map<String, Any?> ?: return@mapNotNull null)
+            }
+        val serialFields =
+            (data["serialFields"] as? List<*>).orEmpty().mapNotNull { item ->
+                val fieldData = item as? Map<String, Any?> ?: return@mapNotNull null
+                val element = parseLabelElement(fieldData) ?: return@mapNotNull null
+                if (element is PrintElement.QR) {
+                    throw IllegalArgumentException("Serial fields must be text or barcode")
+                }
+                SerialField(
+                    element = element,
+                    prefix = fieldData["prefix"] as? String ?: "",
+                    suffix = fieldData["suffix"] as? String ?: "",
+                    digits = (fieldData["digits"] as? Number)?.toInt() ?: 0,
+                )
+            }
+
+        return LabelTemplate(parseMediaConfig(data["media"] as? Map<String, Any?>), elements, serialFields)
+    }
+
+    private fun parseLabelImport(options: Map<String, Any?>?): LabelImport {
+        val format =
+            when ((options?.get("format") as? String)?.lowercase()) {
+                "json" -> LabelFileFormat.JSON
+                else -> LabelFileFormat.CSV
+            }
+        val fields =
+            (options?.get("fields") as? Map<*, *>)
+                .orEmpty()
+                .mapNotNull { (field, column) -> (column as? String)?.let { field.toString() to it } }
+                .toMap()
+        return LabelImport(
+            format = format,
+            fields = fields,
+            copiesColumn = options?.get("copiesColumn") as? String,
+            delimiter = (options?.get("delimiter") as? String)?.firstOrNull() ?: ',',
+        )
+    }
+
+    private fun parseLabelElement(data: Map<String, Any?>): PrintElement? {
+        val x = (data["x"] as? Number)?.toInt() ?: 0
+        val y = (data["y"] as? Number)?.toInt() ?: 0
+
+        return when (data["type"] as? String) {
+            "text" -> {
+                PrintElement.Text(
+                    content = data["content"] as? String ?: "",
+                    x = x,
+                    y = y,
+                    style =
+                        TextStyle(
+                            fontSize = parseFontSize(data["fontSize"] as? String),
+                            bold = data["bold"] as? Boolean ?: false,
+                        ),
+                )
+            }
+
+            "barcode" -> {
+                PrintElement.Barcode(
+                    data = data["data"] as? String ?: "",
+                    x = x,
+                    y = y,
+                    type = parseBarcodeType(data["barcodeType"] as? String),
+                    width = (data["width"] as? Number)?.toInt() ?: 2,
+                    height = (data["height"] as? Number)?.toInt() ?: 60,
+                )
+            }
+
+            "qr" -> {
+                PrintElement.QR(
+                    data = data["data"] as? String ?: "",
+                    x = x,
+                    y = y,
+                    size = (data["size"] as? Number)?.toInt() ?: 5,
+                )
+            }
+
+            else -> {
+                null
+            }
+        }
+    }
+
+    private fun parseReceipt(
+        data: Map<String, Any?>,
+        images: MutableMap<String, PrintImage>? = null,
+    ): Receipt {
+        val header = parseReceiptLines(data["header"] as? List<*>, images)
+        val body = parseReceiptLines(data["body"] as? List<*>, images)
+        val footer = parseReceiptLines(data["footer"] as? List<*>, images)
 
         return Receipt(header, body, footer)
     }
 
-    private fun parseReceiptLines(data: List<*>?): List<ReceiptLine> {
+    private fun parseReceiptLines(
+        data: List<*>?,
+        images: MutableMap<String, PrintImage>?,
+    ): List<ReceiptLine> {
         if (data == null) return emptyList()
 
         return data.mapNotNull { item ->
             val lineData = item as? Map<String, Any?> ?: return@mapNotNull null
-            parseReceiptLine(lineData)
+            parseReceiptLine(lineData, images)
         }
     }
 
-    private fun parseReceiptLine(data: Map<String, Any?>): ReceiptLine? {
+    private fun parseReceiptLine(
+        data: Map<String, Any?>,
+        images: MutableMap<String, PrintImage>?,
+    ): ReceiptLine? {
         val type = data["type"] as? String ?: return null
 
         return when (type) {
@@ -458,12 +929,18 @@ class PrinterModule : Module() {
 
             "image" -> {
                 val base64 = data["base64"] as? String ?: return null
-                val bitmap =
-                    com.sincpro.printer.infrastructure.BinaryConverter
-                        .base64ToBitmap(base64)
-                        ?: return null
+                // Un recibo preparado reutiliza la misma imagen: su capa ya la tiene difuminada
+                val image =
+                    images?.get(base64) ?: run {
+                        val bitmap =
+                            sdk.bixolon.metrics.time(PrintPhase.DECODE) {
+                                com.sincpro.printer.infrastructure.BinaryConverter
+                                    .base64ToBitmap(base64)
+                            } ?: return null
+                        com.sincpro.printer.infrastructure.BitmapImage(bitmap).also { images?.put(base64, it) }
+                    }
                 ReceiptLine.Image(
-                    bitmap = bitmap,
+                    image = image,
                     alignment = parseAlignment(data["alignment"] as? String),
                 )
             }
@@ -0,0 +1,39 @@
+plugins {
+    id("org.jetbrains.kotlin.jvm")
+    `java-library`
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+tasks.withType<org.jetbrains.kotlin.gradle.tasks.KotlinCompile>().configureEach {
+    kotlinOptions.jvmTarget = "17"
+}
+
+dependencies {
+    // Misma versión que el SDK: estas fuentes también se compilan dentro del AAR
+    api("org.jetbrains.kotlinx:kotlinx-coroutines-core:1.7.3")
+
+    testImplementation(kotlin("test"))
+    // runTest: VirtualPrinter corre en tiempo virtual
+    testImplementation("org.jetbrains.kotlinx:kotlinx-coroutines-test:1.7.3")
+}
+
+// ./gradlew :core:test
+tasks.test {
+    useJUnitPlatform()
+}
+
+// ./gradlew :core:jmh  (filtrar: -PjmhIncludes=ReceiptLayout)
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // gc.alloc.rate.norm = bytes asignados por operación
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    (findProperty("jmhIncludes") as String?)?.let { includes.add(it) }
+}
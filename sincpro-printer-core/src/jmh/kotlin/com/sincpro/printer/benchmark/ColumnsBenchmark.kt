@@ -0,0 +1,44 @@
+package com.sincpro.printer.benchmark
+
+import com.sincpro.printer.domain.Alignment
+import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.ReceiptLine
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Column padding of a single row (`ReceiptLine.Columns.toElement`), the hot
+ * line type of item lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class ColumnsBenchmark {
+
+    @Param("2", "4")
+    var columns: Int = 0
+
+    private lateinit var row: ReceiptLine.Columns
+
+    @Setup
+    fun setup() {
+        val alignments = Alignment.values()
+        row = ReceiptLine.Columns(
+            List(columns) { i ->
+                ReceiptLine.Column("Columna $i", 1f / columns, alignments[i % alignments.size])
+            },
+            FontSize.MEDIUM
+        )
+    }
+
+    @Benchmark
+    fun toElement(): Pair<PrintElement?, Int> = row.toElement(100, Fixtures.MEDIA.widthDots)
+}
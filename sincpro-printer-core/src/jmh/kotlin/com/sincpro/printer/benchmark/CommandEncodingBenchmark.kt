@@ -0,0 +1,45 @@
+package com.sincpro.printer.benchmark
+
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.infrastructure.SlcsEncoder
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * PrintElements → compiled commands → SLCS bytes, for text-only receipts.
+ * Image encoding cost is covered by [DitheringBenchmark].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class CommandEncodingBenchmark {
+
+    @Param("10", "100", "1000")
+    var lines: Int = 0
+
+    private lateinit var elements: List<PrintElement>
+    private lateinit var commands: List<PrinterCommand>
+
+    @Setup
+    fun setup() {
+        elements = Fixtures.receipt(lines).toElements(Fixtures.MEDIA.widthDots)
+        commands = PrinterCommand.compile(elements, Fixtures.MEDIA)
+    }
+
+    @Benchmark
+    fun compile(): List<PrinterCommand> = PrinterCommand.compile(elements, Fixtures.MEDIA)
+
+    @Benchmark
+    fun encode(): ByteArray = SlcsEncoder.encode(commands)
+
+    @Benchmark
+    fun encodedSize(): Long = SlcsEncoder.encodedSize(commands)
+}
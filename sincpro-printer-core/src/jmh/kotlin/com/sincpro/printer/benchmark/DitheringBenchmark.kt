@@ -0,0 +1,39 @@
+package com.sincpro.printer.benchmark
+
+import com.sincpro.printer.domain.ArgbImage
+import com.sincpro.printer.domain.MonoBitmap
+import com.sincpro.printer.infrastructure.ImageDither
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * ARGB → 1-bpp for a logo (200 px) and a full-width 80 mm image (640 px).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class DitheringBenchmark {
+
+    @Param("200", "640")
+    var width: Int = 0
+
+    private lateinit var image: ArgbImage
+
+    @Setup
+    fun setup() {
+        image = Fixtures.image(width, width * 3 / 4)
+    }
+
+    @Benchmark
+    fun threshold(): MonoBitmap = ImageDither.threshold(image)
+
+    @Benchmark
+    fun floydSteinberg(): MonoBitmap = ImageDither.floydSteinberg(image)
+}
@@ -0,0 +1,72 @@
+package com.sincpro.printer.benchmark
+
+import com.sincpro.printer.domain.Alignment
+import com.sincpro.printer.domain.ArgbImage
+import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.Receipt
+import com.sincpro.printer.domain.ReceiptLine
+
+/**
+ * Deterministic inputs shared by the benchmarks.
+ */
+internal object Fixtures {
+
+    val MEDIA: MediaConfig = MediaConfig.continuous80mm()
+
+    /**
+     * Store receipt with [bodyLines] item rows: the mix a real ticket has
+     * (header, columns, key/values, separators, QR footer).
+     */
+    fun receipt(bodyLines: Int): Receipt {
+        val body = ArrayList<ReceiptLine>(bodyLines)
+        for (i in 0 until bodyLines) {
+            body.add(
+                when (i % 4) {
+                    0 -> ReceiptLine.Columns(
+                        ReceiptLine.Column("Item $i", 0.6f),
+                        ReceiptLine.Column("${i % 9 + 1} x 12.50", 0.4f, Alignment.RIGHT)
+                    )
+                    1 -> ReceiptLine.KeyValue("Code", "SKU-${100_000 + i}")
+                    2 -> ReceiptLine.Text("Lote ${i / 4}: producto de prueba", FontSize.SMALL)
+                    else -> ReceiptLine.Separator()
+                }
+            )
+        }
+        return Receipt(
+            header = listOf(
+                ReceiptLine.Text("SINCPRO S.R.L.", FontSize.LARGE, bold = true, alignment = Alignment.CENTER),
+                ReceiptLine.Text("NIT 123456789", alignment = Alignment.CENTER),
+                ReceiptLine.Separator()
+            ),
+            body = body,
+            footer = listOf(
+                ReceiptLine.Separator(),
+                ReceiptLine.Columns(
+                    ReceiptLine.Column("TOTAL", 0.5f),
+                    ReceiptLine.Column("1250.00", 0.5f, Alignment.RIGHT),
+                    bold = true
+                ),
+                ReceiptLine.QR("https://sincpro.com.bo/f/0001-000123", size = 5)
+            )
+        )
+    }
+
+    /**
+     * Logo-like image: diagonal gradient with a solid block, so dithering
+     * has both flat and continuous-tone areas.
+     */
+    fun image(width: Int, height: Int): ArgbImage {
+        val pixels = IntArray(width * height) { index ->
+            val x = index % width
+            val y = index / width
+            val gray = if (x in width / 4 until width / 2 && y in height / 4 until height / 2) {
+                0
+            } else {
+                (x + y) * 255 / (width + height)
+            }
+            (0xFF shl 24) or (gray shl 16) or (gray shl 8) or gray
+        }
+        return ArgbImage(width, height, pixels)
+    }
+}
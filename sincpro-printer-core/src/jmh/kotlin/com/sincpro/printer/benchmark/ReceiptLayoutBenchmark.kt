@@ -0,0 +1,41 @@
+package com.sincpro.printer.benchmark
+
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.Receipt
+import com.sincpro.printer.domain.contentHeight
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Receipt → PrintElements, and the continuous-media height derived from them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ReceiptLayoutBenchmark {
+
+    @Param("10", "100", "1000")
+    var lines: Int = 0
+
+    private lateinit var receipt: Receipt
+    private lateinit var elements: List<PrintElement>
+
+    @Setup
+    fun setup() {
+        receipt = Fixtures.receipt(lines)
+        elements = receipt.toElements(Fixtures.MEDIA.widthDots)
+    }
+
+    @Benchmark
+    fun toElements(): List<PrintElement> = receipt.toElements(Fixtures.MEDIA.widthDots)
+
+    @Benchmark
+    fun contentHeight(): Int = elements.contentHeight()
+}
@@ -0,0 +1,97 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.DeliveryUncertainException
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.infrastructure.IdempotencyTable
+import com.sincpro.printer.infrastructure.IdempotencyTable.Outcome
+
+/**
+ * ADAPTER - Prints each [PrintJobOptions.idempotencyKey] at most once
+ *
+ * Calls without a key pass straight through. For keyed calls:
+ * - a key that already printed returns success without printing again
+ * - a failure before any data was flushed forgets the key, so the retry prints
+ * - after a [DeliveryUncertainException], a printer building or printing its image
+ *   buffer got the job, which then counts as printed. Otherwise the key stays uncertain:
+ *   an idle printer may just have finished it.
+ * - a retry of an uncertain key is not sent; it fails with a [DeliveryUncertainException]
+ *   naming the original job, unless [PrintJobOptions.resendUncertain] says the caller
+ *   checked and wants it printed again
+ *
+ * Calls with the same key are serialized, so two retries of one key never race; other
+ * keys go on in parallel. [jobIdFor] gives the job that printed a key, so a retry
+ * resolved without printing reports the original job.
+ */
+class IdempotentPrinter(
+    private val printer: IPrinter,
+    private val table: IdempotencyTable = IdempotencyTable()
+) : IPrinter by printer {
+
+    /** The job that printed [options]' key, or its own id when it has none or nothing printed yet */
+    fun jobIdFor(options: PrintJobOptions): String =
+        options.idempotencyKey?.let { table.get(it) }?.takeIf { it.outcome == Outcome.DELIVERED }?.jobId ?: options.jobId
+
+    override suspend fun print(
+        elements: List<PrintElement>,
+        media: MediaConfig,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> = once(options) { printer.print(elements, media, copies, options) }
+
+    override suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> = once(options) { printer.printLabelRun(template, startSerial, count, step, copies, options) }
+
+    override suspend fun printCompiled(commands: List<PrinterCommand>, copies: Int, options: PrintJobOptions): Result<Unit> =
+        once(options) { printer.printCompiled(commands, copies, options) }
+
+    private suspend fun once(options: PrintJobOptions, send: suspend () -> Result<Unit>): Result<Unit> {
+        val key = options.idempotencyKey ?: return send()
+        return table.withKey(key) {
+            val previous = table.get(key)
+            if (previous != null && (previous.outcome == Outcome.DELIVERED || reachedPrinter() == true)) {
+                table.put(key, previous.jobId, Outcome.DELIVERED)
+                return@withKey Result.success(Unit)
+            }
+            // Un intento previo pudo haber impreso: no se reenvía sin permiso explícito
+            if (previous != null && !options.resendUncertain) {
+                return@withKey Result.failure(
+                    DeliveryUncertainException(
+                        "Job ${previous.jobId} may already have printed key $key; resend with resendUncertain",
+                        jobId = previous.jobId
+                    )
+                )
+            }
+
+            val result = send()
+            val error = result.exceptionOrNull()
+            when {
+                error == null -> table.put(key, options.jobId, Outcome.DELIVERED)
+                error !is DeliveryUncertainException -> table.remove(key)
+                reachedPrinter() == true -> {
+                    table.put(key, options.jobId, Outcome.DELIVERED)
+                    return@withKey Result.success(Unit)
+                }
+                else -> table.put(key, options.jobId, Outcome.UNCERTAIN)
+            }
+            result
+        }
+    }
+
+    /** Whether the printer is holding a job right now; null when its status can't be read. False proves nothing. */
+    private suspend fun reachedPrinter(): Boolean? {
+        val status = printer.getStatus().getOrNull() ?: return null
+        if (!status.isConnected) return null
+        return status.isBuildingImage || status.isPrinting
+    }
+}
@@ -0,0 +1,220 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.ConnectionConfig
+import com.sincpro.printer.domain.ConnectionState
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.ReconnectPolicy
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.selects.select
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * ADAPTER - Keeps an [IPrinter] connected
+ *
+ * Wraps any printer. After a successful [connect] or [connectAny] it:
+ * - pings [getStatus] when no job was sent for [ReconnectPolicy.keepAliveIntervalMs]
+ * - treats a dropped state or [ReconnectPolicy.missedPingsToReconnect] failed pings as a lost
+ *   link and reconnects in the background with exponential backoff, resending the whole last [configure]
+ * - holds [print], [printLabelRun] and [printCompiled] calls while the link is down, up to [ReconnectPolicy.holdJobsMs]
+ *
+ * [disconnect] stops the supervision; giving up after [ReconnectPolicy.maxAttempts] does too.
+ *
+ * Only configs passed to this printer are resent. Wrap it around decorators that reconfigure
+ * the printer on their own (e.g. [ThermalPrinter]), so their transient steps are not replayed.
+ */
+class SupervisedPrinter(
+    private val printer: IPrinter,
+    private val policy: ReconnectPolicy = ReconnectPolicy.DEFAULT,
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+) : IPrinter by printer {
+
+    @Volatile
+    private var target: ConnectionConfig? = null
+
+    @Volatile
+    private var lastConfig: PrinterConfig? = null
+
+    @Volatile
+    private var supervision: Job? = null
+
+    // Enlace conectado y reconfigurado: los trabajos retenidos esperan esto
+    private val _linkReady = MutableStateFlow(false)
+    val linkReady: StateFlow<Boolean> = _linkReady.asStateFlow()
+
+    private val activity = AtomicLong()
+    private val reconnects = AtomicInteger()
+
+    /** Successful background reconnects since creation */
+    val reconnectCount: Int get() = reconnects.get()
+
+    // ==================== Conexión ====================
+
+    override suspend fun connect(config: ConnectionConfig): Result<Unit> {
+        stopSupervision()
+        return printer.connect(config).onSuccess {
+            target = config
+            startSupervision()
+        }
+    }
+
+    override suspend fun connectAny(
+        candidates: List<ConnectionConfig>,
+        staggerMs: Long
+    ): Result<ConnectionConfig> {
+        stopSupervision()
+        // Se reconecta al ganador; volver a competir en cada caída costaría más que reintentar
+        return printer.connectAny(candidates, staggerMs).onSuccess { winner ->
+            target = winner
+            startSupervision()
+        }
+    }
+
+    override suspend fun disconnect(): Result<Unit> {
+        target = null
+        stopSupervision()
+        return printer.disconnect()
+    }
+
+    override suspend fun configure(config: PrinterConfig, force: Boolean): Result<Unit> =
+        printer.configure(config, force).onSuccess { lastConfig = config }
+
+    // ==================== Impresión ====================
+
+    override suspend fun print(
+        elements: List<PrintElement>,
+        media: MediaConfig,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        if (!awaitLink()) return offline()
+        activity.incrementAndGet()
+        return printer.print(elements, media, copies, options)
+    }
+
+    override suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        if (!awaitLink()) return offline()
+        activity.incrementAndGet()
+        return printer.printLabelRun(template, startSerial, count, step, copies, options)
+    }
+
+    override suspend fun printCompiled(commands: List<PrinterCommand>, copies: Int, options: PrintJobOptions): Result<Unit> {
+        if (!awaitLink()) return offline()
+        activity.incrementAndGet()
+        return printer.printCompiled(commands, copies, options)
+    }
+
+    /** False when the link stayed down for [ReconnectPolicy.holdJobsMs] */
+    private suspend fun awaitLink(): Boolean {
+        if (target == null || (_linkReady.value && printer.isConnected())) return true
+        return withTimeoutOrNull(policy.holdJobsMs) {
+            _linkReady.combine(printer.connectionState) { ready, state ->
+                ready && state == ConnectionState.CONNECTED
+            }.first { it }
+        } != null
+    }
+
+    private fun offline(): Result<Unit> =
+        Result.failure(Exception("Printer offline: link not restored within ${policy.holdJobsMs} ms"))
+
+    // ==================== Supervisión ====================
+
+    private fun startSupervision() {
+        _linkReady.value = true
+        supervision = scope.launch {
+            while (isActive) {
+                awaitLinkLoss()
+                _linkReady.value = false
+                if (!reconnect()) {
+                    target = null
+                    return@launch
+                }
+                _linkReady.value = true
+            }
+        }
+    }
+
+    private fun stopSupervision() {
+        supervision?.cancel()
+        supervision = null
+        _linkReady.value = false
+    }
+
+    private suspend fun awaitLinkLoss() = coroutineScope {
+        select<Unit> {
+            async {
+                printer.connectionState.first { it == ConnectionState.DISCONNECTED || it == ConnectionState.ERROR }
+            }.onAwait {}
+            if (policy.keepAliveIntervalMs > 0) async { pingUntilMissed() }.onAwait {}
+        }
+        coroutineContext.cancelChildren()
+    }
+
+    /**
+     * Returns once [ReconnectPolicy.missedPingsToReconnect] pings in a row failed.
+     * Intervals with print activity count as a successful ping.
+     */
+    private suspend fun pingUntilMissed() {
+        var missed = 0
+        var seen = activity.get()
+        while (missed < policy.missedPingsToReconnect) {
+            delay(policy.keepAliveIntervalMs)
+            val current = activity.get()
+            if (current != seen) {
+                seen = current
+                missed = 0
+                continue
+            }
+            val alive = printer.getStatus().map { it.isConnected }.getOrDefault(false)
+            missed = if (alive) 0 else missed + 1
+        }
+    }
+
+    private suspend fun reconnect(): Boolean {
+        var backoff = policy.initialBackoffMs
+        repeat(policy.maxAttempts) { attempt ->
+            val config = target ?: return false
+            if (attempt > 0) {
+                delay(backoff)
+                backoff = (backoff * 2).coerceAtMost(policy.maxBackoffMs)
+            }
+            // Un ping fallido puede dejar el estado en CONNECTED: cerrar antes de reabrir
+            if (printer.isConnected()) printer.disconnect()
+            if (printer.connect(config).isSuccess) {
+                // La caída pudo ser un apagado: no fiarse de lo que la impresora tenía
+                lastConfig?.let { printer.configure(it, force = true) }
+                reconnects.incrementAndGet()
+                return true
+            }
+        }
+        return false
+    }
+}
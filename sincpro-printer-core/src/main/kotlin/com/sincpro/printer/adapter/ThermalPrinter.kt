@@ -0,0 +1,174 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.ThermalPolicy
+import com.sincpro.printer.domain.ThermalState
+import com.sincpro.printer.domain.contentHeight
+import com.sincpro.printer.infrastructure.HeadHeatModel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * ADAPTER - Paces long runs so the print head never reaches its overheat stop
+ *
+ * While [policy] is enabled, each job first asks a [HeadHeatModel] for its step: the
+ * configured speed, then slower speeds (and lighter densities if allowed) applied through
+ * [configure], then growing pauses between jobs. Heat from finished jobs decays, so the
+ * run steps back up as the head cools.
+ *
+ * The status is read every [ThermalPolicy.statusEveryJobs] jobs and right after a job that
+ * failed or took over three times the usual send time (a stalled printer stops draining
+ * the link). An overheat seen there teaches the model the real budget of this printer.
+ */
+class ThermalPrinter(
+    private val printer: IPrinter,
+    policy: ThermalPolicy = ThermalPolicy.DEFAULT,
+    private val clock: () -> Long = System::currentTimeMillis
+) : IPrinter by printer {
+
+    @Volatile
+    private var model = HeadHeatModel(policy, clock)
+
+    // Configuración pedida por la app; la aplicada es esta con el paso actual
+    @Volatile
+    private var base: PrinterConfig? = null
+
+    @Volatile
+    private var applied: HeadHeatModel.Step? = null
+
+    private val stepLock = Mutex()
+    private val jobsSinceCheck = AtomicInteger()
+
+    // Ritmo medido con la política activa
+    private val labels = AtomicLong()
+    private val startedAtMs = AtomicLong()
+
+    @Volatile
+    private var averageSendMs = 0.0
+
+    val policy: ThermalPolicy get() = model.policy
+
+    /**
+     * Replace the policy. Starts over at level 0 with the policy's budget and, when
+     * connected, puts the configured speed and density back on the printer.
+     */
+    suspend fun setPolicy(policy: ThermalPolicy): Result<Unit> {
+        model = HeadHeatModel(policy, clock)
+        labels.set(0)
+        startedAtMs.set(0)
+        averageSendMs = 0.0
+        val config = base?.takeIf { printer.isConnected() } ?: return Result.success(Unit)
+        return configure(config, force = false)
+    }
+
+    fun state(): ThermalState {
+        val current = model
+        val ladder = current.ladder(base)
+        val step = ladder[current.level.coerceAtMost(ladder.lastIndex)]
+        val started = startedAtMs.get()
+        val hours = if (started == 0L) 0.0 else (clock() - started) / 3_600_000.0
+        return ThermalState(
+            level = current.level,
+            maxLevel = ladder.lastIndex,
+            speed = step.speed,
+            density = step.density,
+            gapMs = step.gapMs,
+            heat = current.heat(),
+            overheats = current.overheats,
+            labelsPerHour = if (hours > 0) labels.get() / hours else 0.0
+        )
+    }
+
+    override suspend fun configure(config: PrinterConfig, force: Boolean): Result<Unit> {
+        base = config
+        val current = model
+        if (!current.policy.enabled) {
+            return printer.configure(config, force).onSuccess { applied = null }
+        }
+        return stepLock.withLock {
+            val ladder = current.ladder(config)
+            val step = ladder[current.level.coerceAtMost(ladder.lastIndex)]
+            printer.configure(step.applyTo(config), force).onSuccess { applied = step }
+        }
+    }
+
+    // ==================== Impresión ====================
+
+    override suspend fun print(
+        elements: List<PrintElement>,
+        media: MediaConfig,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        val length = if (media.heightDots > 0) media.heightDots + media.gapDots else elements.contentHeight()
+        return paced(copies.toLong(), length.toLong() * copies) { printer.print(elements, media, copies, options) }
+    }
+
+    override suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        val printed = count.toLong() * copies
+        val length = (template.media.heightDots + template.media.gapDots).toLong()
+        return paced(printed, length * printed) {
+            printer.printLabelRun(template, startSerial, count, step, copies, options)
+        }
+    }
+
+    override suspend fun printCompiled(commands: List<PrinterCommand>, copies: Int, options: PrintJobOptions): Result<Unit> =
+        paced(copies.toLong(), PrinterCommand.feedDots(commands)) { printer.printCompiled(commands, copies, options) }
+
+    private suspend fun paced(printed: Long, dots: Long, send: suspend () -> Result<Unit>): Result<Unit> {
+        val current = model
+        if (!current.policy.enabled) return send()
+
+        val step = stepLock.withLock { stepFor(current) }
+        if (step.gapMs > 0) delay(step.gapMs)
+
+        startedAtMs.compareAndSet(0, clock())
+        val start = clock()
+        val result = send()
+        val took = clock() - start
+        current.sent(dots, step.density)
+
+        val slow = averageSendMs > 0 && took > MIN_SLOW_SEND_MS && took > averageSendMs * SLOW_SEND_FACTOR
+        averageSendMs = if (averageSendMs == 0.0) took.toDouble() else averageSendMs * 0.9 + took * 0.1
+        if (result.isSuccess) labels.addAndGet(printed)
+
+        if (result.isFailure || slow || jobsSinceCheck.incrementAndGet() >= current.policy.statusEveryJobs) {
+            jobsSinceCheck.set(0)
+            val overheated = printer.getStatus().getOrNull()?.isOverheated == true
+            if (overheated) current.overheated(current.ladder(base).lastIndex)
+        }
+        return result
+    }
+
+    /** Moves the printer to the step the model asks for; only speed/density changes are sent */
+    private suspend fun stepFor(current: HeadHeatModel): HeadHeatModel.Step {
+        val config = base
+        val ladder = current.ladder(config)
+        val step = ladder[current.next(ladder.lastIndex)]
+        if (config != null && (step.speed != applied?.speed || step.density != applied?.density)) {
+            printer.configure(step.applyTo(config)).onSuccess { applied = step }
+        }
+        return step
+    }
+
+    private companion object {
+        const val SLOW_SEND_FACTOR = 3
+        const val MIN_SLOW_SEND_MS = 200
+    }
+}
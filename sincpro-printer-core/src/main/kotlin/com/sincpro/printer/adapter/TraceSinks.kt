@@ -0,0 +1,153 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.ITraceSink
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.MediaType
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.infrastructure.SlcsEncoder
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.io.OutputStream
+import java.net.InetSocketAddress
+import java.net.Socket
+
+// ==================== Sumidero nulo ====================
+
+/**
+ * ADAPTER - Discards the trace, counting the bytes it would have sent.
+ * Replaying into it at full speed gives the SDK-side cost of a session.
+ */
+class NullTraceSink : ITraceSink {
+
+    var bytes = 0L
+        private set
+
+    override suspend fun write(jobId: String, command: PrinterCommand) {
+        bytes += SlcsEncoder.encodedSize(listOf(command))
+    }
+
+    override suspend fun flush(jobId: String) = Unit
+}
+
+// ==================== Socket ====================
+
+/**
+ * ADAPTER - Streams the trace as SLCS bytes over TCP
+ *
+ * For the loopback emulator (`sincpro-printer-testkit`) or a network printer's raw
+ * port. Bytes come from [SlcsEncoder], not the vendor encoder, so a real printer may
+ * reject what the emulator accepts; use [PrinterTraceSink] for real hardware.
+ */
+class SocketTraceSink(
+    private val host: String,
+    private val port: Int = 9100,
+    private val timeoutMs: Int = 10_000
+) : ITraceSink {
+
+    private var socket: Socket? = null
+    private var output: OutputStream? = null
+    private val buffer = ByteArrayOutputStream()
+
+    override suspend fun write(jobId: String, command: PrinterCommand) {
+        SlcsEncoder.encodeTo(command, buffer)
+    }
+
+    override suspend fun flush(jobId: String) = withContext(Dispatchers.IO) {
+        // Un write por trabajo, como endTransactionPrint
+        val out = output ?: open()
+        buffer.writeTo(out)
+        out.flush()
+        buffer.reset()
+    }
+
+    override suspend fun close() = withContext(Dispatchers.IO) {
+        try {
+            socket?.close()
+        } catch (e: IOException) {
+            // Ya cerrado por el otro extremo
+        }
+        socket = null
+        output = null
+    }
+
+    private fun open(): OutputStream {
+        val s = Socket()
+        s.connect(InetSocketAddress(host, port), timeoutMs)
+        s.tcpNoDelay = true
+        socket = s
+        return s.getOutputStream().also { output = it }
+    }
+}
+
+// ==================== Impresora ====================
+
+/**
+ * ADAPTER - Replays through an [IPrinter] (the Bixolon adapter or [VirtualPrinter])
+ *
+ * Buffers each job's commands and prints them on flush, so the printer's own
+ * encoder produces the bytes. Continuous jobs keep their recorded length; jobs sent
+ * without geometry (media session) reuse the previous job's. Label runs (several
+ * prints per job) replay label by label, erased areas dropping the elements they cover.
+ * Jobs are re-submitted as `<jobId>-replay`; a failed job throws and stops the replay.
+ */
+class PrinterTraceSink(private val printer: IPrinter) : ITraceSink {
+
+    private val pending = HashMap<String, MutableList<PrinterCommand>>()
+
+    // La geometría persiste entre trabajos, como en la impresora (sesiones de medio)
+    private var width = 0
+    private var media: MediaConfig? = null
+
+    override suspend fun write(jobId: String, command: PrinterCommand) {
+        pending.getOrPut(jobId) { ArrayList() }.add(command)
+    }
+
+    override suspend fun flush(jobId: String) {
+        val commands = pending.remove(jobId) ?: return
+        val elements = ArrayList<PrintElement>(commands.size)
+        var prints = 0
+
+        for (command in commands) {
+            when (command) {
+                is PrinterCommand.ClearBuffer -> Unit
+                is PrinterCommand.SetWidth -> width = command.dots
+                is PrinterCommand.SetLength -> media = when (command.type) {
+                    MediaType.CONTINUOUS -> {
+                        // Los Space no generan comandos: se restituye el largo grabado
+                        elements.add(PrintElement.Space(command.dots - PrinterCommand.CONTINUOUS_MARGIN_DOTS))
+                        MediaConfig(width, 0, MediaType.CONTINUOUS)
+                    }
+                    MediaType.GAP, MediaType.BLACK_MARK -> MediaConfig(width, command.dots, command.type, command.gapDots)
+                }
+                is PrinterCommand.DrawText -> elements.add(PrintElement.Text(command.content, command.x, command.y, command.style))
+                is PrinterCommand.DrawQr -> elements.add(PrintElement.QR(command.data, command.x, command.y, command.size))
+                is PrinterCommand.DrawBarcode -> elements.add(
+                    PrintElement.Barcode(command.data, command.x, command.y, command.type, command.width, command.height)
+                )
+                is PrinterCommand.DrawImage -> elements.add(PrintElement.Image(command.image, command.x, command.y))
+                is PrinterCommand.EraseArea -> elements.removeAll { it.isInside(command) }
+                is PrinterCommand.Print -> {
+                    val config = media ?: throw IOException("Job $jobId has no media commands")
+                    val replayId = if (prints++ == 0) "$jobId-replay" else "$jobId-replay-$prints"
+                    printer.print(elements.toList(), config, command.copies, PrintJobOptions(replayId)).getOrThrow()
+                }
+            }
+        }
+    }
+
+    private fun PrintElement.isInside(area: PrinterCommand.EraseArea): Boolean {
+        val (x, y) = when (this) {
+            is PrintElement.Text -> x to y
+            is PrintElement.QR -> x to y
+            is PrintElement.Barcode -> x to y
+            is PrintElement.Image -> x to y
+            is PrintElement.Space -> return false
+        }
+        return x in area.x until area.x + area.width && y in area.y until area.y + area.height
+    }
+}
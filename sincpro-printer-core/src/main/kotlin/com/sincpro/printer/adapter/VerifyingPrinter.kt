@@ -0,0 +1,120 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobEvent
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintJobPhase
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.PrinterFaultException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.merge
+import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.flow.transform
+import kotlinx.coroutines.launch
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * ADAPTER - Checks the printer after a job instead of before it
+ *
+ * Calls with [PrintJobOptions.verify] are sent right away, with no status round trip in
+ * front of them, and return as soon as the job is sent. The job then gets up to
+ * [outputWaitMs] to report OUTPUT_COMPLETE. If it FAILS instead, or reports nothing, one
+ * status read decides: a printer error (paper out, cover open...) is reported in
+ * [jobEvents] as FAILED with a [PrinterFaultException] cause, and `reprint(jobId)` sends
+ * the job again once fixed. Anything else means the job is still printing.
+ *
+ * Failed jobs are not requeued here; the caller decides when the printer is fixed.
+ * Calls without the flag pass straight through.
+ */
+class VerifyingPrinter(
+    private val printer: IPrinter,
+    private val outputWaitMs: Long = OUTPUT_WAIT_MS,
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+) : IPrinter by printer {
+
+    // Trabajo verify → pendiente de su primer evento final (quien lo saca, lo resuelve)
+    private val watched = ConcurrentHashMap.newKeySet<String>()
+
+    // Fallas halladas cuando el trabajo no reportó nada
+    private val lateFailures = MutableSharedFlow<PrintJobEvent>(
+        extraBufferCapacity = LATE_EVENT_BUFFER,
+        onBufferOverflow = BufferOverflow.DROP_OLDEST
+    )
+
+    override val jobEvents: SharedFlow<PrintJobEvent> =
+        merge(printer.jobEvents.transform { emit(settle(it)) }, lateFailures)
+            .shareIn(scope, SharingStarted.Eagerly)
+
+    override suspend fun print(
+        elements: List<PrintElement>,
+        media: MediaConfig,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> = verified(options) { printer.print(elements, media, copies, options) }
+
+    override suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> = verified(options) { printer.printLabelRun(template, startSerial, count, step, copies, options) }
+
+    override suspend fun printCompiled(commands: List<PrinterCommand>, copies: Int, options: PrintJobOptions): Result<Unit> =
+        verified(options) { printer.printCompiled(commands, copies, options) }
+
+    private suspend fun verified(options: PrintJobOptions, send: suspend () -> Result<Unit>): Result<Unit> {
+        if (!options.verify) return send()
+        val jobId = options.jobId
+        val startNanos = System.nanoTime()
+        watched += jobId
+        try {
+            return send()
+        } finally {
+            // Sin evento final a tiempo: una sola lectura de estado
+            scope.launch {
+                delay(outputWaitMs)
+                if (watched.remove(jobId)) fault(jobId)?.let { lateFailures.emit(failedEvent(jobId, startNanos, it)) }
+            }
+        }
+    }
+
+    private suspend fun settle(event: PrintJobEvent): PrintJobEvent =
+        when {
+            event.phase == PrintJobPhase.OUTPUT_COMPLETE -> event.also { watched.remove(it.jobId) }
+            event.phase == PrintJobPhase.FAILED && watched.remove(event.jobId) ->
+                fault(event.jobId)?.let { event.copy(errorMessage = it.message, cause = it) } ?: event
+            else -> event
+        }
+
+    private suspend fun fault(jobId: String): PrinterFaultException? =
+        printer.getStatus().getOrNull()
+            ?.takeIf { it.isConnected && it.hasError }
+            ?.let { PrinterFaultException(jobId, it) }
+
+    private fun failedEvent(jobId: String, startNanos: Long, fault: PrinterFaultException) =
+        PrintJobEvent(
+            jobId = jobId,
+            phase = PrintJobPhase.FAILED,
+            timestampMs = System.currentTimeMillis(),
+            elapsedMs = (System.nanoTime() - startNanos) / 1_000_000,
+            errorMessage = fault.message,
+            cause = fault
+        )
+
+    companion object {
+        const val OUTPUT_WAIT_MS = 1_500L
+        private const val LATE_EVENT_BUFFER = 16
+    }
+}
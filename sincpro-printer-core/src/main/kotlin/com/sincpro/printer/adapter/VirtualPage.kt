@@ -0,0 +1,24 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.MonoBitmap
+
+/**
+ * One label rasterized by [VirtualPrinter]: a whole job, or one label of a label run.
+ */
+class VirtualPage(
+    val jobId: String,
+    val copies: Int,
+    val raster: MonoBitmap
+) {
+    val widthDots: Int get() = raster.width
+    val heightDots: Int get() = raster.height
+
+    /** Packed 1-bpp raster, see [MonoBitmap] */
+    val bits: ByteArray get() = raster.bits
+
+    fun isBlack(x: Int, y: Int): Boolean = raster.isBlack(x, y)
+
+    fun blackDots(): Int = raster.blackDots()
+
+    override fun toString() = "VirtualPage(jobId=$jobId, ${widthDots}x$heightDots, copies=$copies)"
+}
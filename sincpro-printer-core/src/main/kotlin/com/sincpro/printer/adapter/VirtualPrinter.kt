@@ -0,0 +1,631 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.ConnectionConfig
+import com.sincpro.printer.domain.ConnectionState
+import com.sincpro.printer.domain.DeliveryUncertainException
+import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.IPrintMetrics
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.MediaType
+import com.sincpro.printer.domain.MonoBitmap
+import com.sincpro.printer.domain.MonoImage
+import com.sincpro.printer.domain.PrintDeadlineException
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobEvent
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintJobPhase
+import com.sincpro.printer.domain.PrintPhase
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.PrinterInfo
+import com.sincpro.printer.domain.PrinterStatus
+import com.sincpro.printer.domain.Speed
+import com.sincpro.printer.domain.TextStyle
+import com.sincpro.printer.domain.bands
+import com.sincpro.printer.domain.cellDots
+import com.sincpro.printer.domain.contentHeight
+import com.sincpro.printer.domain.time
+import com.sincpro.printer.domain.widthDots
+import com.sincpro.printer.infrastructure.ImageDither
+import com.sincpro.printer.infrastructure.MediaSession
+import com.sincpro.printer.infrastructure.ReprintCache
+import com.sincpro.printer.infrastructure.SlcsEncoder
+import com.sincpro.printer.infrastructure.StatusPoller
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.abs
+import kotlin.random.Random
+import kotlin.time.Duration.Companion.nanoseconds
+
+/**
+ * ADAPTER - In-memory virtual printer
+ *
+ * Compiles every job like the Bixolon adapter, rasterizes it into a 1-bpp
+ * [VirtualPage] and models how long a real
+ * printer would take:
+ * - Link: fixed per-job overhead + encoded payload ([SlcsEncoder]) / [VirtualPrinterConfig.linkBytesPerSecond]
+ * - Print head: fed dots / (`Speed.ips` × dpi), overlapped with the next transmit
+ *   while the printer buffer ([VirtualPrinterConfig.bufferedJobs]) has room
+ *
+ * Every wait is a `delay`, so under `runTest` the timing runs on virtual time and
+ * is deterministic. Queue, transaction and output metrics and event `elapsedMs` are
+ * stamped with [nanoClock]; pass the test scheduler's time so they follow virtual time
+ * too (render stays real CPU time). Faults from [injectFault] show up in [getStatus] and fail jobs the way the real
+ * printer would.
+ *
+ * ```
+ * @Test fun batch() = runTest {
+ *     val printer = VirtualPrinter(
+ *         PrintMetricsRecorder(),
+ *         scope = backgroundScope,
+ *         nanoClock = { testScheduler.currentTime * 1_000_000 }
+ *     )
+ *     printer.connect(ConnectionConfig.bluetooth("virtual"))
+ *     repeat(100) { printer.print(elements, MediaConfig.label(50, 30)) }
+ *     advanceTimeBy(60_000) // el cabezal corre en backgroundScope
+ *     println(printer.stats())
+ * }
+ * ```
+ */
+class VirtualPrinter(
+    private val metrics: IPrintMetrics,
+    private val config: VirtualPrinterConfig = VirtualPrinterConfig(),
+    scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.Default),
+    val reprints: ReprintCache = ReprintCache(),
+    private val nanoClock: () -> Long = System::nanoTime
+) : IPrinter {
+
+    private val _connectionState = MutableStateFlow(ConnectionState.DISCONNECTED)
+    override val connectionState: StateFlow<ConnectionState> = _connectionState.asStateFlow()
+
+    @Volatile
+    private var printerConfig = PrinterConfig.DEFAULT
+
+    private val printMutex = Mutex()
+    private val mediaSession = MediaSession()
+
+    private val _jobEvents = MutableSharedFlow<PrintJobEvent>(
+        extraBufferCapacity = JOB_EVENT_BUFFER,
+        onBufferOverflow = BufferOverflow.DROP_OLDEST
+    )
+    override val jobEvents: SharedFlow<PrintJobEvent> = _jobEvents.asSharedFlow()
+
+    // Trabajos transmitidos esperando al cabezal; la capacidad modela la memoria de la impresora
+    private val head = Channel<HeadJob>(config.bufferedJobs)
+
+    // Trabajos aceptados que el cabezal aún no terminó
+    private val headQueued = AtomicInteger()
+
+    private val activeFaults = ConcurrentHashMap.newKeySet<VirtualFault>()
+    private val pendingFaults = ConcurrentLinkedQueue<PendingFault>()
+    private val retainedPages = ArrayDeque<VirtualPage>()
+
+    private val jobsAccepted = AtomicLong()
+    private val jobsFailed = AtomicLong()
+    private val labelsPrinted = AtomicLong()
+    private val bytesSent = AtomicLong()
+    private val dotsPrinted = AtomicLong()
+    private val cuts = AtomicLong()
+    private val transmitNanos = AtomicLong()
+    private val printNanos = AtomicLong()
+
+    private val statusPoller = StatusPoller(::getStatus, connectionState, jobEvents, scope)
+
+    init {
+        scope.launch { runHead() }
+    }
+
+    // ==================== Conexión ====================
+
+    override suspend fun connect(config: ConnectionConfig): Result<Unit> {
+        if (VirtualFault.LINK_DROP in activeFaults) {
+            _connectionState.value = ConnectionState.ERROR
+            return Result.failure(Exception("Connection failed: ${VirtualFault.LINK_DROP.message}"))
+        }
+        _connectionState.value = ConnectionState.CONNECTED
+        mediaSession.invalidate()
+        metrics.activePrinterId = config.address.ifEmpty { VIRTUAL_PRINTER_ID }
+        return Result.success(Unit)
+    }
+
+    override suspend fun connectAny(
+        candidates: List<ConnectionConfig>,
+        staggerMs: Long
+    ): Result<ConnectionConfig> {
+        // El enlace virtual es instantáneo: gana siempre el primer candidato
+        val first = candidates.firstOrNull()
+            ?: return Result.failure(IllegalArgumentException("No connection candidates"))
+        return connect(first).map { first }
+    }
+
+    override suspend fun disconnect(): Result<Unit> {
+        _connectionState.value = ConnectionState.DISCONNECTED
+        mediaSession.invalidate()
+        return Result.success(Unit)
+    }
+
+    override fun isConnected() = _connectionState.value == ConnectionState.CONNECTED
+
+    // ==================== Estado ====================
+
+    override suspend fun getStatus(): Result<PrinterStatus> {
+        if (!isConnected()) return Result.success(PrinterStatus.disconnected())
+        promotePendingFaults(jobsAccepted.get())
+
+        val paperEmpty = VirtualFault.PAPER_OUT in activeFaults
+        val coverOpen = VirtualFault.COVER_OPEN in activeFaults
+        val overheat = VirtualFault.OVERHEAT in activeFaults
+        val cutterJammed = VirtualFault.CUTTER_JAM in activeFaults
+        val hasError = paperEmpty || coverOpen || overheat || cutterJammed
+
+        return Result.success(
+            PrinterStatus(
+                connectionState = _connectionState.value,
+                hasPaper = !paperEmpty,
+                isCoverOpen = coverOpen,
+                isOverheated = overheat,
+                hasError = hasError,
+                errorMessage = if (hasError) headFaults().joinToString(", ") { it.message } else null,
+                isPrinting = headQueued.get() > 0,
+                isCutterJammed = cutterJammed
+            )
+        )
+    }
+
+    override fun statusFlow(): Flow<PrinterStatus> = statusPoller.statuses
+
+    override suspend fun getInfo(): Result<PrinterInfo> {
+        if (!isConnected()) return Result.failure(Exception("Not connected"))
+        return Result.success(PrinterInfo(config.model, config.firmware, config.serialNumber, config.dpi))
+    }
+
+    override fun getDpi(): Int = config.dpi
+
+    // ==================== Configuración ====================
+
+    override suspend fun configure(config: PrinterConfig, force: Boolean): Result<Unit> {
+        if (!isConnected()) return Result.failure(Exception("Not connected"))
+        printerConfig = config
+        return Result.success(Unit)
+    }
+
+    // ==================== Impresión ====================
+
+    override suspend fun print(
+        elements: List<PrintElement>,
+        media: MediaConfig,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        if (media.type == MediaType.CONTINUOUS && options.segmentDots > 0 && elements.contentHeight() > options.segmentDots) {
+            // Los segmentos llegan seguidos al cabezal: se modelan como un solo envío
+            val bands = elements.bands(options.segmentDots)
+            return submit(options, copies) { List(copies) { PrinterCommand.compileSegments(bands, media).flatten().toList() }.flatten() }
+        }
+        return submit(options, copies) { PrinterCommand.compile(elements, media, copies) }
+    }
+
+    override suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> = submit(options, copies) { PrinterCommand.compileLabelRun(template, startSerial, count, step, copies) }
+
+    override suspend fun printCompiled(commands: List<PrinterCommand>, copies: Int, options: PrintJobOptions): Result<Unit> =
+        submit(options, copies) { commands }
+
+    private suspend fun submit(options: PrintJobOptions, copies: Int, compile: () -> List<PrinterCommand>): Result<Unit> {
+        val job = TrackedJob(options.jobId, nanoClock())
+        emitJobEvent(job, PrintJobPhase.QUEUED)
+
+        val run: suspend () -> Result<Unit> = {
+            printMutex.withLock {
+                metrics.record(PrintPhase.QUEUE, nanoClock() - job.queuedAtNanos)
+                transmit(job, copies, compile)
+            }
+        }
+        // El enlace simulado es un delay: cancelar o vencer el plazo lo corta al momento
+        val result = try {
+            if (options.deadlineMs > 0) {
+                withTimeoutOrNull(options.deadlineMs) { run() } ?: Result.failure(deadlineMissed(job, options.deadlineMs))
+            } else {
+                run()
+            }
+        } catch (e: CancellationException) {
+            jobsFailed.incrementAndGet()
+            emitJobEvent(job, PrintJobPhase.FAILED, "Cancelled")
+            throw e
+        }
+        return result.onFailure { e ->
+            jobsFailed.incrementAndGet()
+            emitJobEvent(job, PrintJobPhase.FAILED, e.message ?: e.javaClass.simpleName)
+        }
+    }
+
+    private fun deadlineMissed(job: TrackedJob, deadlineMs: Long): Exception = if (job.sentAtNanos != 0L) {
+        DeliveryUncertainException("Job ${job.id} missed its $deadlineMs ms deadline while being sent")
+    } else {
+        PrintDeadlineException(job.id, deadlineMs)
+    }
+
+    private suspend fun transmit(job: TrackedJob, copies: Int, compile: () -> List<PrinterCommand>): Result<Unit> {
+        if (!isConnected()) return Result.failure(Exception("Not connected"))
+        promotePendingFaults(jobsAccepted.incrementAndGet())
+        headFaults().firstOrNull()?.let { return Result.failure(Exception(it.message)) }
+
+        emitJobEvent(job, PrintJobPhase.SENDING)
+
+        val commands = compile()
+        val labels = commands.filterIsInstance<PrinterCommand.Print>().sumOf { it.copies * it.sets }
+        val pages = metrics.time(PrintPhase.RENDER) {
+            if (config.rasterize) rasterize(job.id, commands) else emptyList()
+        }
+
+        val payload = SlcsEncoder.encodedSize(mediaSession.filter(commands))
+        metrics.addPayloadBytes(payload)
+
+        val linkNanos = linkNanos(payload)
+        val linkStart = nanoClock()
+        delay(linkNanos.nanoseconds)
+        metrics.record(PrintPhase.TRANSACTION, nanoClock() - linkStart)
+        transmitNanos.addAndGet(linkNanos)
+
+        if (VirtualFault.LINK_DROP in activeFaults) {
+            _connectionState.value = ConnectionState.DISCONNECTED
+            mediaSession.invalidate()
+            return Result.failure(Exception(VirtualFault.LINK_DROP.message))
+        }
+
+        bytesSent.addAndGet(payload)
+        mediaSession.sent(commands)
+        reprints.remember(job.id, commands, copies)
+        job.sentAtNanos = nanoClock()
+        emitJobEvent(job, PrintJobPhase.SENT)
+        pages.forEach { retain(it) }
+
+        // Bloquea mientras el buffer de la impresora está lleno, como el enlace real
+        headQueued.incrementAndGet()
+        try {
+            head.send(HeadJob(job, PrinterCommand.feedDots(commands), labels, printerConfig.speedFor(commands), autoCuts(commands, labels, copies)))
+        } catch (e: CancellationException) {
+            headQueued.decrementAndGet()
+            throw e
+        }
+
+        if (VirtualFault.LOST_ACK in activeFaults) {
+            return Result.failure(DeliveryUncertainException("Job ${job.id} may have reached the printer: ${VirtualFault.LOST_ACK.message}"))
+        }
+        return Result.success(Unit)
+    }
+
+    override fun beginMediaSession() = mediaSession.begin()
+
+    override fun endMediaSession() = mediaSession.end()
+
+    // ==================== Cabezal ====================
+
+    private class HeadJob(val job: TrackedJob?, val dots: Long, val copies: Int, val speed: Speed, val cuts: Int = 0)
+
+    /** Cuts the auto cutter makes: one per label, or one per copy of a segmented receipt */
+    private fun autoCuts(commands: List<PrinterCommand>, labels: Int, copies: Int): Int = when {
+        !printerConfig.autoCutter.enabled -> 0
+        PrinterCommand.segments(commands).size > 1 -> copies
+        else -> labels
+    }
+
+    private suspend fun runHead() {
+        for (item in head) {
+            val fault = headFaults().firstOrNull()
+            if (fault != null) {
+                headQueued.decrementAndGet()
+                item.job?.let {
+                    jobsFailed.incrementAndGet()
+                    emitJobEvent(it, PrintJobPhase.FAILED, fault.message)
+                }
+                continue
+            }
+
+            val nanos = headNanos(item.dots, item.speed)
+            delay(nanos.nanoseconds)
+            printNanos.addAndGet(nanos)
+            dotsPrinted.addAndGet(item.dots)
+            cuts.addAndGet(item.cuts.toLong())
+            headQueued.decrementAndGet()
+
+            val job = item.job ?: continue
+            labelsPrinted.addAndGet(item.copies.toLong())
+            metrics.record(PrintPhase.OUTPUT, nanoClock() - job.sentAtNanos)
+            emitJobEvent(job, PrintJobPhase.OUTPUT_COMPLETE)
+        }
+    }
+
+    private fun linkNanos(bytes: Long): Long {
+        val overhead = config.jobOverheadMs * 1_000_000
+        val wire = config.linkBytesPerSecond?.let { bytes * 1_000_000_000 / it } ?: 0L
+        return overhead + wire
+    }
+
+    private fun headNanos(dots: Long, speed: Speed): Long {
+        // Speed.ips va en décimas de pulgada por segundo (25 → 2.5 ips)
+        val dotsPerSecond = speed.ips.toLong() * config.dpi / 10
+        return dots * 1_000_000_000 / dotsPerSecond
+    }
+
+    // ==================== Fallas ====================
+
+    /**
+     * Inject a fault. With [afterJobs] > 0 the next [afterJobs] jobs still go
+     * through and the fault appears on the one after.
+     */
+    fun injectFault(fault: VirtualFault, afterJobs: Int = 0) {
+        if (afterJobs <= 0) {
+            activeFaults.add(fault)
+            if (fault == VirtualFault.LINK_DROP) {
+                _connectionState.value = ConnectionState.DISCONNECTED
+                mediaSession.invalidate()
+            }
+        } else {
+            pendingFaults.add(PendingFault(fault, jobsAccepted.get() + afterJobs))
+        }
+    }
+
+    fun clearFault(fault: VirtualFault) {
+        activeFaults.remove(fault)
+        pendingFaults.removeAll { it.fault == fault }
+    }
+
+    fun clearFaults() {
+        activeFaults.clear()
+        pendingFaults.clear()
+    }
+
+    private class PendingFault(val fault: VirtualFault, val afterJob: Long)
+
+    private fun promotePendingFaults(currentJob: Long) {
+        pendingFaults.removeAll { pending ->
+            (currentJob > pending.afterJob).also { due -> if (due) activeFaults.add(pending.fault) }
+        }
+    }
+
+    private fun headFaults() = activeFaults.filter { it != VirtualFault.LINK_DROP && it != VirtualFault.LOST_ACK }
+
+    // ==================== Inspección ====================
+
+    /** Most recent rasterized jobs, oldest first (up to [VirtualPrinterConfig.retainedPages]) */
+    fun pages(): List<VirtualPage> = synchronized(retainedPages) { retainedPages.toList() }
+
+    fun stats() = VirtualPrinterStats(
+        jobs = jobsAccepted.get(),
+        failedJobs = jobsFailed.get(),
+        labelsPrinted = labelsPrinted.get(),
+        bytesSent = bytesSent.get(),
+        dotsPrinted = dotsPrinted.get(),
+        cuts = cuts.get(),
+        transmitMs = transmitNanos.get() / 1_000_000.0,
+        printMs = printNanos.get() / 1_000_000.0
+    )
+
+    fun resetStats() {
+        synchronized(retainedPages) { retainedPages.clear() }
+        listOf(jobsAccepted, jobsFailed, labelsPrinted, bytesSent, dotsPrinted, cuts, transmitNanos, printNanos)
+            .forEach { it.set(0) }
+    }
+
+    private fun retain(page: VirtualPage) {
+        if (config.retainedPages <= 0) return
+        synchronized(retainedPages) {
+            if (retainedPages.size >= config.retainedPages) retainedPages.removeFirst()
+            retainedPages.addLast(page)
+        }
+    }
+
+    // ==================== Eventos de trabajo ====================
+
+    private class TrackedJob(val id: String, val queuedAtNanos: Long) {
+        @Volatile
+        var sentAtNanos: Long = 0
+    }
+
+    private fun emitJobEvent(job: TrackedJob, phase: PrintJobPhase, errorMessage: String? = null) {
+        _jobEvents.tryEmit(
+            PrintJobEvent(
+                jobId = job.id,
+                phase = phase,
+                timestampMs = System.currentTimeMillis(),
+                elapsedMs = (nanoClock() - job.queuedAtNanos) / 1_000_000,
+                errorMessage = errorMessage
+            )
+        )
+    }
+
+    // ==================== Utilidades ====================
+
+    override suspend fun feed(dots: Int): Result<Unit> {
+        if (!isConnected()) return Result.failure(Exception("Not connected"))
+        head.send(HeadJob(null, dots.toLong(), 0, printerConfig.speed))
+        return Result.success(Unit)
+    }
+
+    override suspend fun cut(): Result<Unit> {
+        if (!isConnected()) return Result.failure(Exception("Not connected"))
+        cuts.incrementAndGet()
+        return Result.success(Unit)
+    }
+
+    // ==================== Render privado ====================
+
+    /**
+     * One page per `Print`. The raster is kept between prints like the printer's
+     * image buffer, so label runs show each label as the head would burn it; a new
+     * `SetLength` (next receipt segment) starts a fresh one.
+     */
+    private fun rasterize(jobId: String, commands: List<PrinterCommand>): List<VirtualPage> {
+        var width = 0
+        var raster = MonoBitmap(1, 1)
+        val pages = ArrayList<VirtualPage>(1)
+        commands.forEach { command ->
+            when (command) {
+                is PrinterCommand.SetWidth -> width = command.dots
+                is PrinterCommand.SetLength -> raster = MonoBitmap(width, command.dots)
+                is PrinterCommand.DrawText -> drawText(raster, command.content, command.x, command.y, command.style)
+                is PrinterCommand.DrawQr -> drawQr(raster, command)
+                is PrinterCommand.DrawBarcode -> drawBarcode(raster, command)
+                // Igual que drawBitmap(..., dithering = true) del adaptador
+                is PrinterCommand.DrawImage -> {
+                    val image = command.image
+                    raster.draw(if (image is MonoImage) image.raster else ImageDither.floydSteinberg(image), command.x, command.y)
+                }
+                is PrinterCommand.EraseArea -> raster.clearRect(command.x, command.y, command.width, command.height)
+                is PrinterCommand.Print -> pages.add(VirtualPage(jobId, command.copies * command.sets, raster.copy()))
+                else -> { }
+            }
+        }
+        return pages
+    }
+
+    /**
+     * Glyphs are drawn as solid cells of the device font size: enough to measure
+     * ink coverage and line placement without shipping a font.
+     */
+    private fun drawText(raster: MonoBitmap, content: String, x: Int, y: Int, style: TextStyle) {
+        val (cellWidth, cellHeight) = style.fontSize.cellDots()
+        val inset = if (style.bold) 0 else 1
+        content.forEachIndexed { index, char ->
+            if (!char.isWhitespace()) {
+                raster.fillRect(x + index * cellWidth + inset, y + 2, cellWidth - 2 * inset, cellHeight - 4)
+            }
+        }
+    }
+
+    /**
+     * Real QR geometry (version from data length at ECC M, three finder patterns),
+     * with data modules filled from a hash of the content.
+     */
+    private fun drawQr(raster: MonoBitmap, command: PrinterCommand.DrawQr) {
+        val version = QR_BYTE_CAPACITY.indexOfFirst { it >= command.data.length }
+            .let { if (it < 0) QR_MAX_VERSION else it + 1 }
+        val modules = 17 + 4 * version
+        val moduleDots = command.size
+        val random = Random(command.data.hashCode())
+
+        for (row in 0 until modules) {
+            for (col in 0 until modules) {
+                val black = finderModule(row, col, modules) ?: random.nextBoolean()
+                if (black) raster.fillRect(command.x + col * moduleDots, command.y + row * moduleDots, moduleDots, moduleDots)
+            }
+        }
+    }
+
+    private fun finderModule(row: Int, col: Int, modules: Int): Boolean? {
+        for ((top, left) in listOf(0 to 0, 0 to modules - 7, modules - 7 to 0)) {
+            val dr = row - top
+            val dc = col - left
+            if (dr in -1..7 && dc in -1..7) {
+                val ring = maxOf(abs(dr - 3), abs(dc - 3))
+                return ring <= 3 && ring != 2
+            }
+        }
+        return null
+    }
+
+    /**
+     * Symbol width follows the symbology; bars come from a hash of the content.
+     * HRI text is drawn below, as the adapter requests.
+     */
+    private fun drawBarcode(raster: MonoBitmap, command: PrinterCommand.DrawBarcode) {
+        val modules = command.type.widthDots(command.data.length, command.width) / command.width.coerceAtLeast(1)
+        val random = Random(command.data.hashCode())
+        for (i in 0 until modules) {
+            // Guardas negras en ambos extremos
+            val black = i < 2 || i >= modules - 2 || random.nextBoolean()
+            if (black) raster.fillRect(command.x + i * command.width, command.y, command.width, command.height)
+        }
+        drawText(raster, command.data, command.x, command.y + command.height + 2, TextStyle(FontSize.SMALL))
+    }
+
+    companion object {
+        private const val JOB_EVENT_BUFFER = 64
+        private const val VIRTUAL_PRINTER_ID = "virtual"
+        private const val QR_MAX_VERSION = 40
+
+        // Capacidad en bytes por versión QR con ECC M (versiones 1-20)
+        private val QR_BYTE_CAPACITY = intArrayOf(
+            14, 26, 42, 62, 84, 106, 122, 152, 180, 213,
+            251, 287, 331, 362, 412, 450, 504, 560, 624, 666
+        )
+    }
+}
+
+/**
+ * @param linkBytesPerSecond link throughput (null = instant), ~20 KB/s for Bluetooth SPP
+ * @param jobOverheadMs fixed per-job round trip (transaction open/close)
+ * @param bufferedJobs jobs the printer accepts ahead of the print head
+ * @param rasterize false skips the raster and keeps only the timing model
+ * @param retainedPages rasterized jobs kept for inspection
+ */
+data class VirtualPrinterConfig(
+    val dpi: Int = 203,
+    val linkBytesPerSecond: Long? = 20_000,
+    val jobOverheadMs: Long = 0,
+    val bufferedJobs: Int = 2,
+    val rasterize: Boolean = true,
+    val retainedPages: Int = 16,
+    val model: String = "SPP-L310 (virtual)",
+    val firmware: String = "VIRTUAL",
+    val serialNumber: String = "VIRT0000001"
+)
+
+/**
+ * Faults a [VirtualPrinter] can simulate. Head faults fail new and buffered jobs;
+ * LINK_DROP disconnects and makes `connect` fail until cleared.
+ */
+enum class VirtualFault(val message: String) {
+    PAPER_OUT("Paper empty"),
+    COVER_OPEN("Cover open"),
+    OVERHEAT("Overheated"),
+    CUTTER_JAM("Cutter jammed"),
+    LINK_DROP("Link dropped"),
+
+    /** The job is sent and printed, but the call fails as if the end of the transaction was lost */
+    LOST_ACK("Transaction acknowledgement lost")
+}
+
+/**
+ * Totals since creation or [VirtualPrinter.resetStats]; times are simulated, not wall clock.
+ * @param cuts explicit `cut()` calls plus the auto cutter's cuts on printed labels
+ */
+data class VirtualPrinterStats(
+    val jobs: Long,
+    val failedJobs: Long,
+    val labelsPrinted: Long,
+    val bytesSent: Long,
+    val dotsPrinted: Long,
+    val cuts: Long,
+    val transmitMs: Double,
+    val printMs: Double
+)
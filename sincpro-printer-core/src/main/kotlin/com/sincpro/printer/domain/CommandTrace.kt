@@ -0,0 +1,65 @@
+package com.sincpro.printer.domain
+
+// ==================== Traza ====================
+
+/**
+ * DOMAIN - Recorded command stream
+ *
+ * Every command an adapter sent, in order, with its offset from the start of
+ * the recording. Replaying it reproduces the exact traffic of a session.
+ */
+data class CommandTrace(
+    val startedAtMs: Long,
+    val events: List<TraceEvent>,
+    val truncated: Boolean = false
+) {
+    val jobCount: Int get() = events.count { it is TraceEvent.Flush }
+    val durationNanos: Long get() = events.lastOrNull()?.offsetNanos ?: 0L
+}
+
+sealed class TraceEvent {
+    abstract val offsetNanos: Long
+    abstract val jobId: String
+
+    /** A command handed to the link */
+    data class Command(
+        override val offsetNanos: Long,
+        override val jobId: String,
+        val command: PrinterCommand
+    ) : TraceEvent()
+
+    /** End of the job's transaction: everything before it has been sent */
+    data class Flush(
+        override val offsetNanos: Long,
+        override val jobId: String
+    ) : TraceEvent()
+}
+
+// ==================== Destino de reproducción ====================
+
+/**
+ * DOMAIN - Where a replayed trace goes (printer, socket, null sink...)
+ */
+interface ITraceSink {
+    suspend fun write(jobId: String, command: PrinterCommand)
+    suspend fun flush(jobId: String)
+    suspend fun close() {}
+}
+
+enum class ReplaySpeed {
+    /** Keep the recorded gaps between commands */
+    ORIGINAL,
+
+    /** Send back to back: measures the sink, not the original app */
+    MAXIMUM
+}
+
+data class ReplayResult(
+    val jobs: Int,
+    val commands: Int,
+    val payloadBytes: Long,
+    val elapsedMs: Double
+) {
+    val bytesPerSecond: Double get() = if (elapsedMs > 0) payloadBytes * 1000.0 / elapsedMs else 0.0
+    val jobsPerMinute: Double get() = if (elapsedMs > 0) jobs * 60_000.0 / elapsedMs else 0.0
+}
@@ -0,0 +1,157 @@
+package com.sincpro.printer.domain
+
+// ==================== Plantilla ====================
+
+/**
+ * DOMAIN - Layout shared by a run of labels
+ *
+ * In a numbered run [elements] are the same on every label and go to the printer
+ * once; only the [serialFields] change from one label to the next. For data-driven
+ * labels, `{name}` placeholders in text, barcode and QR content are filled from
+ * [LabelData] by [bind].
+ */
+data class LabelTemplate(
+    val media: MediaConfig,
+    val elements: List<PrintElement> = emptyList(),
+    val serialFields: List<SerialField> = emptyList()
+) {
+    /** Elements of one label with every placeholder replaced; a missing value fails */
+    fun bind(data: LabelData): List<PrintElement> = elements.map { element ->
+        when (element) {
+            is PrintElement.Text -> element.copy(content = fill(element.content, data))
+            is PrintElement.Barcode -> element.copy(data = fill(element.data, data))
+            is PrintElement.QR -> element.copy(data = fill(element.data, data))
+            else -> element
+        }
+    }
+
+    private fun fill(content: String, data: LabelData): String {
+        if ('{' !in content) return content
+        return PLACEHOLDER.replace(content) { match ->
+            val name = match.groupValues[1]
+            data.values[name] ?: throw IllegalArgumentException("Missing label field '$name'")
+        }
+    }
+
+    private companion object {
+        val PLACEHOLDER = Regex("\\{([A-Za-z0-9_.-]+)}")
+    }
+}
+
+/**
+ * Values for one data-driven label, by placeholder name.
+ */
+data class LabelData(
+    val values: Map<String, String>,
+    val copies: Int = 1
+)
+
+/**
+ * One label of a streamed run reached the printer.
+ * @param index position in the source, from 0
+ * @param printed labels sent so far in this run, this one included
+ */
+data class LabelProgress(
+    val index: Long,
+    val jobId: String,
+    val printed: Long
+)
+
+// ==================== Tirada numerada ====================
+
+/**
+ * A text or barcode whose content is `prefix + serial + suffix`, the serial
+ * zero-padded to [digits]. [element] gives position and style; its own content is ignored.
+ */
+data class SerialField(
+    val element: PrintElement,
+    val prefix: String = "",
+    val suffix: String = "",
+    val digits: Int = 0
+) {
+    init {
+        require(element is PrintElement.Text || element is PrintElement.Barcode) {
+            "Serial fields must be text or barcode"
+        }
+    }
+
+    fun format(serial: Long): String = prefix + serial.toString().padStart(digits, '0') + suffix
+
+    fun render(serial: Long): PrintElement = when (element) {
+        is PrintElement.Text -> element.copy(content = format(serial))
+        is PrintElement.Barcode -> element.copy(data = format(serial))
+        else -> element
+    }
+
+    /**
+     * Area the field covers when showing [serial], erased before the next value is drawn.
+     * Text follows its alignment and bold cell; barcodes include the human readable line
+     * printed below them.
+     */
+    fun eraseCommand(serial: Long): PrinterCommand.EraseArea {
+        val length = format(serial).length
+        return when (element) {
+            is PrintElement.Text -> {
+                val (cellWidth, cellHeight) = element.style.fontSize.cellDots()
+                val width = length * (cellWidth + if (element.style.bold) BOLD_EXTRA_DOTS else 0)
+                when (element.style.alignment) {
+                    Alignment.LEFT -> erase(element.x, element.y, width, cellHeight)
+                    // Según el modelo, centrado en x o dibujado desde x: borrar ambos
+                    Alignment.CENTER -> erase(element.x - width / 2, element.y, width / 2 + width, cellHeight)
+                    Alignment.RIGHT -> erase(element.x - width, element.y, width, cellHeight)
+                }
+            }
+            is PrintElement.Barcode -> {
+                val bars = element.type.widthDots(length, element.width)
+                val readable = length * FontSize.SMALL.cellDots().first
+                erase(element.x, element.y, maxOf(bars, readable), element.height + HRI_DOTS)
+            }
+            else -> error("Serial fields must be text or barcode")
+        }
+    }
+
+    private fun erase(x: Int, y: Int, width: Int, height: Int): PrinterCommand.EraseArea {
+        val left = x.coerceAtLeast(0)
+        return PrinterCommand.EraseArea(left, y, width - (left - x), height)
+    }
+
+    private companion object {
+        // Igual que contentHeight(): la línea legible bajo el código
+        const val HRI_DOTS = 30
+
+        // La negrita de la fuente del dispositivo ensancha cada carácter
+        const val BOLD_EXTRA_DOTS = 2
+    }
+}
+
+// ==================== Importación ====================
+
+enum class LabelFileFormat { CSV, JSON }
+
+/**
+ * How rows of an exported file become [LabelData].
+ * @param fields template placeholder → column name; columns not listed keep their own name
+ * @param copiesColumn column holding the copies of each row, 1 when absent or blank
+ * @param delimiter CSV only
+ */
+data class LabelImport(
+    val format: LabelFileFormat,
+    val fields: Map<String, String> = emptyMap(),
+    val copiesColumn: String? = null,
+    val delimiter: Char = ','
+) {
+    fun toLabelData(row: Map<String, String>): LabelData {
+        val values = if (fields.isEmpty()) row else row + fields.mapNotNull { (field, column) -> row[column]?.let { field to it } }
+        val copies = copiesColumn?.let { row[it] }?.trim()?.takeIf { it.isNotEmpty() }?.toInt() ?: 1
+        return LabelData(values, copies)
+    }
+}
+
+/**
+ * @param resumedFrom rows skipped because an earlier attempt already printed them
+ * @param printed rows printed by this call
+ */
+data class LabelImportResult(
+    val resumedFrom: Long,
+    val printed: Long
+)
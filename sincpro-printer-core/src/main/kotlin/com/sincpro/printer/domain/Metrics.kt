@@ -0,0 +1,63 @@
+package com.sincpro.printer.domain
+
+// ==================== Fases ====================
+
+/**
+ * Instrumented phases of the print path, in pipeline order.
+ * - DECODE: Base64/PDF → Bitmap
+ * - LAYOUT: Receipt → PrintElements
+ * - QUEUE: waiting for earlier jobs and commands on the printer's thread
+ * - RENDER: buffer setup and draw commands inside the transaction
+ * - TRANSACTION: `endTransactionPrint` (data handed to the link)
+ * - OUTPUT: transaction flushed → printer reports output complete
+ */
+enum class PrintPhase { DECODE, LAYOUT, QUEUE, RENDER, TRANSACTION, OUTPUT }
+
+// ==================== Contrato ====================
+
+/**
+ * DOMAIN - Print path metrics sink
+ *
+ * Recording must stay in the microsecond range: implementations are called
+ * inline on the print path.
+ */
+interface IPrintMetrics {
+    /** Printer that unscoped records are attributed to (set by the adapter on connect) */
+    var activePrinterId: String
+
+    fun record(phase: PrintPhase, nanos: Long, printerId: String = activePrinterId)
+    fun addPayloadBytes(bytes: Long, printerId: String = activePrinterId)
+    fun snapshot(): MetricsSnapshot
+    fun reset()
+}
+
+inline fun <T> IPrintMetrics.time(phase: PrintPhase, block: () -> T): T {
+    val start = System.nanoTime()
+    try {
+        return block()
+    } finally {
+        record(phase, System.nanoTime() - start)
+    }
+}
+
+// ==================== Snapshot ====================
+
+data class PhaseStats(
+    val count: Long,
+    val p50Ms: Double,
+    val p95Ms: Double,
+    val p99Ms: Double,
+    val maxMs: Double,
+    val totalMs: Double
+)
+
+data class PrinterMetrics(
+    val printerId: String,
+    val phases: Map<PrintPhase, PhaseStats>,
+    val payloadBytes: Long
+)
+
+data class MetricsSnapshot(
+    val printers: List<PrinterMetrics>,
+    val takenAtMs: Long
+)
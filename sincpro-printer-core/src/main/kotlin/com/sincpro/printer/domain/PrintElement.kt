@@ -0,0 +1,184 @@
+package com.sincpro.printer.domain
+
+sealed class PrintElement {
+    data class Text(
+        val content: String,
+        val x: Int,
+        val y: Int,
+        val style: TextStyle = TextStyle()
+    ) : PrintElement()
+
+    data class QR(
+        val data: String,
+        val x: Int,
+        val y: Int,
+        val size: Int = 6
+    ) : PrintElement()
+
+    data class Barcode(
+        val data: String,
+        val x: Int,
+        val y: Int,
+        val type: BarcodeType = BarcodeType.CODE128,
+        val width: Int = 2,
+        val height: Int = 60
+    ) : PrintElement()
+
+    data class Image(
+        val image: PrintImage,
+        val x: Int,
+        val y: Int
+    ) : PrintElement()
+
+    data class Space(val dots: Int) : PrintElement()
+}
+
+/**
+ * Bottom edge of the lowest element in dots, used to size continuous media.
+ * Returns 100 for an empty job.
+ */
+fun List<PrintElement>.contentHeight(): Int {
+    if (isEmpty()) return 100
+
+    var maxY = 0
+    forEach { element ->
+        val elementBottom = element.bottom()
+        if (elementBottom > maxY) maxY = elementBottom
+    }
+
+    return maxY
+}
+
+private fun PrintElement.top(): Int = when (this) {
+    is PrintElement.Text -> y
+    is PrintElement.QR -> y
+    is PrintElement.Barcode -> y
+    is PrintElement.Image -> y
+    is PrintElement.Space -> dots
+}
+
+private fun PrintElement.bottom(): Int = when (this) {
+    is PrintElement.Text -> y + 30
+    is PrintElement.QR -> y + (size * 20) + 20
+    is PrintElement.Barcode -> y + height + 30
+    is PrintElement.Image -> y + image.height + 10
+    is PrintElement.Space -> dots
+}
+
+private fun PrintElement.shiftedUp(dots: Int): PrintElement = when (this) {
+    is PrintElement.Text -> copy(y = y - dots)
+    is PrintElement.QR -> copy(y = y - dots)
+    is PrintElement.Barcode -> copy(y = y - dots)
+    is PrintElement.Image -> copy(y = y - dots)
+    is PrintElement.Space -> copy(dots = this.dots - dots)
+}
+
+/** The same element [dots] further down the page */
+fun PrintElement.shiftedDown(dots: Int): PrintElement = shiftedUp(-dots)
+
+/**
+ * Horizontal slice of a continuous job, its elements moved up to start at y = 0.
+ * @param heightDots distance to the next band's top, so bands print back to back; a band
+ *   cut through overlapping elements also covers their overhang
+ */
+class ContentBand(val elements: List<PrintElement>, val heightDots: Int)
+
+/**
+ * Split a job into bands of at most [maxDots], cutting between elements. A band ends
+ * where the next one starts, at the last clean break (nothing crossing it) that fits.
+ * Content too dense for a clean break is cut at the top of the first element past the
+ * limit, the band stretched to its lowest element. Elements taller than [maxDots] make
+ * their band longer instead of being split. The last band ends at [contentHeight].
+ */
+fun List<PrintElement>.bands(maxDots: Int): List<ContentBand> {
+    if (isEmpty()) return listOf(ContentBand(emptyList(), contentHeight()))
+
+    val bands = ArrayList<ContentBand>()
+    val current = ArrayList<PrintElement>()
+    var top = 0
+    var bottom = 0
+    // Último corte limpio dentro de la banda: índice del elemento que abre la siguiente
+    var cleanIndex = 0
+
+    fun cut(count: Int, nextTop: Int, end: Int) {
+        val taken = current.subList(0, count)
+        bands.add(ContentBand(taken.map { it.shiftedUp(top) }, end - top))
+        taken.clear()
+        top = nextTop
+        bottom = top
+        cleanIndex = 0
+        current.forEachIndexed { index, element ->
+            if (index > 0 && element.top() >= bottom && element.top() > top) cleanIndex = index
+            bottom = maxOf(bottom, element.bottom())
+        }
+    }
+
+    for (element in sortedBy { it.top() }) {
+        val elementTop = element.top()
+        while (current.isNotEmpty() && element.bottom() - top > maxDots && elementTop > top) {
+            when {
+                elementTop >= bottom -> cut(current.size, elementTop, elementTop)
+                cleanIndex > 0 -> current[cleanIndex].top().let { cut(cleanIndex, it, it) }
+                // Sin corte limpio: cortar igual, la banda cubre lo que sobresale
+                else -> cut(current.size, elementTop, bottom)
+            }
+        }
+        if (current.isNotEmpty() && elementTop >= bottom && elementTop > top) cleanIndex = current.size
+        current.add(element)
+        bottom = maxOf(bottom, element.bottom())
+    }
+    bands.add(ContentBand(current.map { it.shiftedUp(top) }, contentHeight() - top))
+    return bands
+}
+
+data class TextStyle(
+    val fontSize: FontSize = FontSize.MEDIUM,
+    val bold: Boolean = false,
+    val alignment: Alignment = Alignment.LEFT
+)
+
+enum class FontSize { SMALL, MEDIUM, LARGE, XLARGE }
+
+enum class Alignment { LEFT, CENTER, RIGHT }
+
+enum class BarcodeType { CODE128, CODE39, EAN13, EAN8, UPCA, UPCE, CODE93, CODABAR }
+
+/**
+ * Glyph cell (width to height) in dots of the device font each size maps to (FONT_SIZE_8/12/20/30).
+ */
+fun FontSize.cellDots(): Pair<Int, Int> = when (this) {
+    FontSize.SMALL -> 12 to 20
+    FontSize.MEDIUM -> 19 to 30
+    FontSize.LARGE -> 32 to 50
+    FontSize.XLARGE -> 48 to 76
+}
+
+/**
+ * Narrow-bar modules in a symbol encoding [length] characters, quiet zones excluded.
+ * CODE39 and CODABAR are counted with 2:1 wide bars; [widthDots] gives their drawn width.
+ */
+fun BarcodeType.modules(length: Int): Int = when (this) {
+    BarcodeType.CODE128 -> 11 * (length + 3) + 2
+    BarcodeType.CODE39 -> 13 * (length + 2)
+    BarcodeType.CODE93 -> 9 * (length + 4) + 1
+    BarcodeType.CODABAR -> 10 * (length + 2)
+    BarcodeType.EAN13, BarcodeType.UPCA -> 95
+    BarcodeType.EAN8 -> 67
+    BarcodeType.UPCE -> 51
+}
+
+/** Wide bar of CODE39 and CODABAR as the adapters draw it, whatever the narrow width */
+const val BARCODE_WIDE_BAR_DOTS = 6
+
+/**
+ * Drawn width in dots of a symbol encoding [length] characters with [narrow]-dot bars,
+ * quiet zones excluded. CODE39 and CODABAR mix narrow and [wide] bars; the other
+ * symbologies are whole multiples of the narrow bar.
+ */
+fun BarcodeType.widthDots(length: Int, narrow: Int, wide: Int = BARCODE_WIDE_BAR_DOTS): Int = when (this) {
+    // 9 elementos por carácter, 3 anchos, más el separador; con inicio y parada
+    BarcodeType.CODE39 -> (length + 2) * (3 * wide + 7 * narrow) - narrow
+    // 7 elementos por carácter; peor caso de 3 anchos (signos, inicio y parada)
+    BarcodeType.CODABAR -> (length + 2) * (3 * wide + 5 * narrow) - narrow
+    else -> modules(length) * narrow
+}
@@ -0,0 +1,105 @@
+package com.sincpro.printer.domain
+
+// ==================== Imagen de entrada ====================
+
+/**
+ * DOMAIN - Platform-neutral image
+ *
+ * Keeps layout and raster code free of `android.graphics`. On Android the SDK
+ * wraps a `Bitmap` (see `BitmapImage`); on the JVM use [ArgbImage].
+ */
+interface PrintImage {
+    val width: Int
+    val height: Int
+
+    /** Copy the ARGB pixels of row [y] into [out] (at least [width] long) */
+    fun readRow(y: Int, out: IntArray)
+}
+
+class ArgbImage(
+    override val width: Int,
+    override val height: Int,
+    val pixels: IntArray
+) : PrintImage {
+
+    init {
+        require(pixels.size >= width * height) { "Expected ${width * height} pixels, got ${pixels.size}" }
+    }
+
+    override fun readRow(y: Int, out: IntArray) {
+        System.arraycopy(pixels, y * width, out, 0, width)
+    }
+}
+
+// ==================== Raster 1-bpp ====================
+
+/**
+ * Packed 1-bpp raster, MSB first, rows of [bytesPerRow] bytes.
+ * A set bit is a burned (black) dot; drawing outside the bitmap is clipped.
+ */
+class MonoBitmap(val width: Int, val height: Int) {
+
+    val bytesPerRow: Int = (width + 7) / 8
+    val bits = ByteArray(bytesPerRow * height)
+
+    fun isBlack(x: Int, y: Int): Boolean {
+        if (x !in 0 until width || y !in 0 until height) return false
+        return (bits[y * bytesPerRow + (x ushr 3)].toInt() and (0x80 ushr (x and 7))) != 0
+    }
+
+    fun set(x: Int, y: Int) {
+        if (x !in 0 until width || y !in 0 until height) return
+        val index = y * bytesPerRow + (x ushr 3)
+        bits[index] = (bits[index].toInt() or (0x80 ushr (x and 7))).toByte()
+    }
+
+    fun fillRect(x: Int, y: Int, width: Int, height: Int) {
+        val left = x.coerceAtLeast(0)
+        val right = (x + width).coerceAtMost(this.width)
+        val top = y.coerceAtLeast(0)
+        val bottom = (y + height).coerceAtMost(this.height)
+        for (row in top until bottom) {
+            for (col in left until right) set(col, row)
+        }
+    }
+
+    fun clearRect(x: Int, y: Int, width: Int, height: Int) {
+        for (row in y.coerceAtLeast(0) until (y + height).coerceAtMost(this.height)) {
+            for (col in x.coerceAtLeast(0) until (x + width).coerceAtMost(this.width)) {
+                val index = row * bytesPerRow + (col ushr 3)
+                bits[index] = (bits[index].toInt() and (0x80 ushr (col and 7)).inv()).toByte()
+            }
+        }
+    }
+
+    fun copy(): MonoBitmap = MonoBitmap(width, height).also { bits.copyInto(it.bits) }
+
+    /** OR [source] onto this bitmap with its top-left corner at ([x], [y]) */
+    fun draw(source: MonoBitmap, x: Int, y: Int) {
+        for (row in 0 until source.height) {
+            for (col in 0 until source.width) {
+                if (source.isBlack(col, row)) set(x + col, y + row)
+            }
+        }
+    }
+
+    fun blackDots(): Int = bits.sumOf { Integer.bitCount(it.toInt() and 0xFF) }
+}
+
+/**
+ * An image already reduced to 1 bpp (e.g. by `ImageDither`): printed as is,
+ * without dithering it again.
+ */
+class MonoImage(val raster: MonoBitmap) : PrintImage {
+    override val width: Int get() = raster.width
+    override val height: Int get() = raster.height
+
+    override fun readRow(y: Int, out: IntArray) {
+        for (x in 0 until width) out[x] = if (raster.isBlack(x, y)) BLACK else WHITE
+    }
+
+    private companion object {
+        const val BLACK = 0xFF000000.toInt()
+        const val WHITE = 0xFFFFFFFF.toInt()
+    }
+}
@@ -0,0 +1,97 @@
+package com.sincpro.printer.domain
+
+import java.util.UUID
+
+// ==================== Opciones por trabajo ====================
+
+/**
+ * Options attached to a single print call.
+ * [jobId] identifies the job in every [PrintJobEvent] it produces.
+ * @param segmentDots > 0 sends continuous jobs taller than this in segments cut between
+ *   lines, so printing starts before the whole job is sent
+ * @param idempotencyKey retries with the same key print at most once
+ *   (see `IdempotentPrinter`)
+ * @param resendUncertain prints a key again even though an earlier attempt may have
+ *   printed it; only for a caller that checked the paper
+ * @param verify send without checking the printer first and check it once the job is out
+ *   (see `VerifyingPrinter`)
+ * @param deadlineMs > 0 fails the job when it has not been sent this long after it was
+ *   QUEUED; a send stuck in the link is aborted and the queue moves on
+ */
+data class PrintJobOptions(
+    val jobId: String = newJobId(),
+    val segmentDots: Int = 0,
+    val idempotencyKey: String? = null,
+    val verify: Boolean = false,
+    val deadlineMs: Long = 0,
+    val resendUncertain: Boolean = false
+) {
+    companion object {
+        fun newJobId(): String = UUID.randomUUID().toString()
+    }
+}
+
+// ==================== Reimpresión ====================
+
+/**
+ * A job kept in compiled form for reprinting.
+ * @param labels labels (or receipts) in one copy
+ * @param retainedBytes memory held by its commands, images included
+ */
+data class SentJob(
+    val jobId: String,
+    val sentAtMs: Long,
+    val labels: Int,
+    val retainedBytes: Long
+)
+
+// ==================== Entrega ====================
+
+/**
+ * The job failed after its data started leaving for the printer (e.g. while waiting for
+ * the end of the transaction): it may or may not have printed.
+ * @param jobId the job that may have printed, when known
+ */
+class DeliveryUncertainException(message: String, cause: Throwable? = null, val jobId: String? = null) :
+    Exception(message, cause)
+
+/**
+ * The job was sent but the printer then reported [status] with an error (paper out,
+ * cover open...): it did not print, or not completely.
+ */
+class PrinterFaultException(val jobId: String, val status: PrinterStatus) :
+    Exception("Job $jobId not printed: ${status.errorMessage}")
+
+/**
+ * The job was not sent within [PrintJobOptions.deadlineMs]. Nothing had left for the
+ * printer yet; once data may have left, the failure is a [DeliveryUncertainException].
+ */
+class PrintDeadlineException(val jobId: String, val deadlineMs: Long) :
+    Exception("Job $jobId missed its $deadlineMs ms deadline")
+
+// ==================== Ciclo de vida ====================
+
+/**
+ * Lifecycle phases of a print job, in emission order.
+ * - QUEUED: accepted by the printer, waiting for the previous job
+ * - SENDING: transaction open, commands being built and sent
+ * - SENT: transaction flushed (`endTransactionPrint` returned)
+ * - OUTPUT_COMPLETE: printer reported the output finished
+ * - FAILED: job aborted, see [PrintJobEvent.errorMessage]; may follow SENT when the
+ *   printer turns out not to have printed it
+ */
+enum class PrintJobPhase { QUEUED, SENDING, SENT, OUTPUT_COMPLETE, FAILED }
+
+/**
+ * @param timestampMs wall clock time of the phase
+ * @param elapsedMs monotonic time since the job was QUEUED
+ * @param cause the failure, when known (e.g. a [PrinterFaultException] found after the call returned)
+ */
+data class PrintJobEvent(
+    val jobId: String,
+    val phase: PrintJobPhase,
+    val timestampMs: Long,
+    val elapsedMs: Long,
+    val errorMessage: String? = null,
+    val cause: Throwable? = null
+)
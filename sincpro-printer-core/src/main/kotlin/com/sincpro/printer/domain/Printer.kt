@@ -0,0 +1,267 @@
+package com.sincpro.printer.domain
+
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+
+interface IPrinter {
+    // Conexión
+    suspend fun connect(config: ConnectionConfig): Result<Unit>
+    suspend fun disconnect(): Result<Unit>
+
+    /**
+     * Race [candidates] (e.g. the WiFi and Bluetooth address of one printer): each starts
+     * [staggerMs] after the previous one, or right away if it failed. The first link up
+     * wins, the rest are dropped. Returns the winning candidate.
+     */
+    suspend fun connectAny(candidates: List<ConnectionConfig>, staggerMs: Long = 250): Result<ConnectionConfig>
+    fun isConnected(): Boolean
+    val connectionState: StateFlow<ConnectionState>
+
+    // Estado
+    suspend fun getStatus(): Result<PrinterStatus>
+
+    /**
+     * Status as it changes: read in the background only while collected, faster around
+     * jobs and while busy or faulted, equal consecutive states emitted once.
+     */
+    fun statusFlow(): Flow<PrinterStatus>
+    suspend fun getInfo(): Result<PrinterInfo>
+    fun getDpi(): Int
+
+    // Configuración global: solo se envían los valores que cambian, salvo con [force]
+    suspend fun configure(config: PrinterConfig, force: Boolean = false): Result<Unit>
+
+    // Impresión (adapter maneja buffer/transaction internamente)
+    suspend fun print(
+        elements: List<PrintElement>,
+        media: MediaConfig,
+        copies: Int = 1,
+        options: PrintJobOptions = PrintJobOptions()
+    ): Result<Unit>
+
+    /**
+     * Print [count] labels numbered [startSerial], +[step], ... in one job: the layout is
+     * sent once and each label only redraws its serial fields ([PrinterCommand.compileLabelRun]).
+     */
+    suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long = 1,
+        copies: Int = 1,
+        options: PrintJobOptions = PrintJobOptions()
+    ): Result<Unit>
+
+    /**
+     * Send [commands] compiled ahead of time ([PrinterCommand.compile]) with [copies] as one job.
+     * [PrintJobOptions.segmentDots] does not apply: the job is already compiled whole.
+     */
+    suspend fun printCompiled(
+        commands: List<PrinterCommand>,
+        copies: Int = 1,
+        options: PrintJobOptions = PrintJobOptions()
+    ): Result<Unit>
+
+    // Tirada de etiquetas: la geometría del medio se envía una vez, no en cada trabajo
+    fun beginMediaSession()
+    fun endMediaSession()
+
+    // Eventos de ciclo de vida por trabajo
+    val jobEvents: SharedFlow<PrintJobEvent>
+
+    // Utilidades
+    suspend fun feed(dots: Int): Result<Unit>
+    suspend fun cut(): Result<Unit>
+}
+
+// ==================== Conexión ====================
+
+data class ConnectionConfig(
+    val type: ConnectionType,
+    val address: String = "",
+    val port: Int = 9100,
+    val timeoutMs: Long = 10000
+) {
+    companion object {
+        fun bluetooth(address: String, timeout: Long = 10000) =
+            ConnectionConfig(ConnectionType.BLUETOOTH, address, timeoutMs = timeout)
+
+        fun wifi(ip: String, port: Int = 9100, timeout: Long = 10000) =
+            ConnectionConfig(ConnectionType.WIFI, ip, port, timeout)
+
+        fun usb() = ConnectionConfig(ConnectionType.USB)
+    }
+}
+
+enum class ConnectionType { BLUETOOTH, WIFI, USB }
+
+/**
+ * Measured quality of one transport address, used to order [IPrinter.connectAny] candidates.
+ * @param connectMs moving average of successful connect latency
+ * @param bytesPerSecond link throughput seen while printing, null until a job was sent
+ */
+data class TransportStats(
+    val address: String,
+    val type: ConnectionType,
+    val connectMs: Double,
+    val attempts: Int,
+    val failures: Int,
+    val bytesPerSecond: Double? = null
+)
+
+/**
+ * Keep-alive and automatic reconnect settings.
+ * @param keepAliveIntervalMs status ping after this much idle time; 0 disables pings
+ * @param missedPingsToReconnect consecutive failed pings that count as a dropped link
+ * @param holdJobsMs how long a print waits for the link to come back before failing
+ */
+data class ReconnectPolicy(
+    val keepAliveIntervalMs: Long = 20_000,
+    val missedPingsToReconnect: Int = 2,
+    val initialBackoffMs: Long = 500,
+    val maxBackoffMs: Long = 30_000,
+    val maxAttempts: Int = Int.MAX_VALUE,
+    val holdJobsMs: Long = 30_000
+) {
+    companion object {
+        val DEFAULT = ReconnectPolicy()
+    }
+}
+
+enum class ConnectionState { DISCONNECTED, CONNECTING, CONNECTED, ERROR }
+
+// ==================== Estado ====================
+
+/**
+ * @param hasSensingError auto media sensing (gap/black mark calibration) failed
+ * @param isBuildingImage the printer is still receiving or composing a job
+ * @param isPrinting the printer is burning a job from its image buffer
+ * @param isPausedInPeeler a peeled label is waiting to be taken before the next one prints
+ */
+data class PrinterStatus(
+    val connectionState: ConnectionState,
+    val hasPaper: Boolean,
+    val isCoverOpen: Boolean,
+    val isOverheated: Boolean,
+    val hasError: Boolean,
+    val errorMessage: String? = null,
+    val isBuildingImage: Boolean = false,
+    val isPrinting: Boolean = false,
+    val isCutterJammed: Boolean = false,
+    val hasSensingError: Boolean = false,
+    val isRibbonOut: Boolean = false,
+    val isPausedInPeeler: Boolean = false
+) {
+    val isConnected: Boolean get() = connectionState == ConnectionState.CONNECTED
+    val isReady: Boolean get() = isConnected && hasPaper && !hasError && !isCoverOpen && !isOverheated
+
+    companion object {
+        fun disconnected() = PrinterStatus(
+            connectionState = ConnectionState.DISCONNECTED,
+            hasPaper = false,
+            isCoverOpen = false,
+            isOverheated = false,
+            hasError = false
+        )
+
+        fun error(message: String) = PrinterStatus(
+            connectionState = ConnectionState.ERROR,
+            hasPaper = false,
+            isCoverOpen = false,
+            isOverheated = false,
+            hasError = true,
+            errorMessage = message
+        )
+    }
+}
+
+data class PrinterInfo(
+    val model: String,
+    val firmware: String,
+    val serialNumber: String,
+    val dpi: Int
+)
+
+// ==================== Configuración ====================
+
+/**
+ * @param autoSpeed print each job at the fastest speed its content allows
+ *   ([PrinterCommand.safeSpeed]), never above [speed]
+ */
+data class PrinterConfig(
+    val marginLeft: Int = 0,
+    val marginTop: Int = 0,
+    val density: Density = Density.MEDIUM,
+    val speed: Speed = Speed.MEDIUM,
+    val orientation: Orientation = Orientation.TOP_TO_BOTTOM,
+    val autoCutter: CutterConfig = CutterConfig.DISABLED,
+    val autoSpeed: Boolean = false
+) {
+    /** Speed for a job of [commands] */
+    fun speedFor(commands: List<PrinterCommand>): Speed =
+        if (autoSpeed) minOf(speed, PrinterCommand.safeSpeed(commands)) else speed
+
+    companion object {
+        val DEFAULT = PrinterConfig()
+    }
+}
+
+enum class Density(val level: Int) { LIGHT(5), MEDIUM(10), DARK(15), EXTRA_DARK(20) }
+
+enum class Speed(val ips: Int) { SLOW(25), MEDIUM(50), FAST(70), EXTRA_FAST(80) }
+
+enum class Orientation { TOP_TO_BOTTOM, BOTTOM_TO_TOP }
+
+// ==================== Temperatura del cabezal ====================
+
+/**
+ * Throttling of long runs before the print head overheats (see `ThermalPrinter`).
+ * An overheated printer stops until it cools, so a slightly slower steady pace prints more per hour.
+ * @param minSpeed slowest speed the run is stepped down to
+ * @param minDensity lightest density allowed; null keeps the configured one (print quality first)
+ * @param gapStepMs pause added between jobs per step, once speed and density are at their floor
+ * @param coolingMs time for the head to lose about two thirds of its heat
+ * @param heatBudgetDots dots fed at MEDIUM density within one [coolingMs] that the head takes;
+ *   replaced by what the printer shows once it overheats
+ * @param statusEveryJobs jobs between status checks; a slow or failed job is checked at once
+ */
+data class ThermalPolicy(
+    val enabled: Boolean = false,
+    val minSpeed: Speed = Speed.SLOW,
+    val minDensity: Density? = null,
+    val gapStepMs: Long = 250,
+    val maxGapMs: Long = 2_000,
+    val coolingMs: Long = 60_000,
+    val heatBudgetDots: Long = 80_000,
+    val statusEveryJobs: Int = 25
+) {
+    companion object {
+        val DEFAULT = ThermalPolicy()
+    }
+}
+
+/**
+ * Throttle applied right now by a thermal-aware printer.
+ * @param level 0 = as configured; each level is one step slower
+ * @param heat estimated head heat as a fraction of the budget (1.0 = about to overheat)
+ * @param labelsPerHour measured over the jobs sent while the policy was enabled
+ */
+data class ThermalState(
+    val level: Int,
+    val maxLevel: Int,
+    val speed: Speed?,
+    val density: Density?,
+    val gapMs: Long,
+    val heat: Double,
+    val overheats: Int,
+    val labelsPerHour: Double
+)
+
+data class CutterConfig(val enabled: Boolean = false, val fullCut: Boolean = true) {
+    companion object {
+        val DISABLED = CutterConfig(false)
+        val FULL_CUT = CutterConfig(true, true)
+        val PARTIAL_CUT = CutterConfig(true, false)
+    }
+}
@@ -0,0 +1,231 @@
+package com.sincpro.printer.domain
+
+/**
+ * DOMAIN - Compiled printer command
+ *
+ * One job as the ordered command sequence an adapter sends. Compiling is pure:
+ * the same elements and media always give the same commands, so a job can be
+ * compiled once and sent, inspected or encoded later.
+ */
+sealed class PrinterCommand {
+    object ClearBuffer : PrinterCommand() {
+        override fun toString() = "ClearBuffer"
+    }
+
+    data class SetWidth(val dots: Int) : PrinterCommand()
+
+    data class SetLength(
+        val dots: Int,
+        val gapDots: Int,
+        val type: MediaType
+    ) : PrinterCommand()
+
+    data class DrawText(
+        val content: String,
+        val x: Int,
+        val y: Int,
+        val style: TextStyle
+    ) : PrinterCommand()
+
+    data class DrawQr(
+        val data: String,
+        val x: Int,
+        val y: Int,
+        val size: Int
+    ) : PrinterCommand()
+
+    data class DrawBarcode(
+        val data: String,
+        val x: Int,
+        val y: Int,
+        val type: BarcodeType,
+        val width: Int,
+        val height: Int
+    ) : PrinterCommand()
+
+    data class DrawImage(
+        val image: PrintImage,
+        val x: Int,
+        val y: Int
+    ) : PrinterCommand()
+
+    /** Blank a rectangle of the image buffer */
+    data class EraseArea(
+        val x: Int,
+        val y: Int,
+        val width: Int,
+        val height: Int
+    ) : PrinterCommand()
+
+    data class Print(val copies: Int, val sets: Int = 1) : PrinterCommand()
+
+    companion object {
+        /** Extra length fed after the content of continuous media */
+        const val CONTINUOUS_MARGIN_DOTS = 100
+
+        /**
+         * Compile a job: clear buffer, media geometry, one draw per element, print.
+         * Continuous media is sized to the content plus [CONTINUOUS_MARGIN_DOTS].
+         */
+        fun compile(elements: List<PrintElement>, media: MediaConfig, copies: Int = 1): List<PrinterCommand> {
+            val commands = ArrayList<PrinterCommand>(elements.size + 4)
+            commands.add(ClearBuffer)
+            commands.add(SetWidth(media.widthDots))
+            commands.add(
+                when (media.type) {
+                    MediaType.CONTINUOUS ->
+                        SetLength(elements.contentHeight() + CONTINUOUS_MARGIN_DOTS, 0, MediaType.CONTINUOUS)
+                    MediaType.GAP, MediaType.BLACK_MARK ->
+                        SetLength(media.heightDots, media.gapDots, media.type)
+                }
+            )
+            elements.forEach { element -> element.toCommand()?.let(commands::add) }
+            commands.add(Print(copies))
+            return commands
+        }
+
+        /**
+         * Compile a continuous job split into [bands] as back-to-back segments, each a
+         * job of its own that can be sent while the next is compiled. Segments feed
+         * exactly their height; only the last one adds [CONTINUOUS_MARGIN_DOTS], so the
+         * paper advances as for the whole job.
+         */
+        fun compileSegments(bands: List<ContentBand>, media: MediaConfig): Sequence<List<PrinterCommand>> {
+            return bands.asSequence().mapIndexed { index, band ->
+                val margin = if (index == bands.lastIndex) CONTINUOUS_MARGIN_DOTS else 0
+                val commands = ArrayList<PrinterCommand>(band.elements.size + 4)
+                commands.add(ClearBuffer)
+                commands.add(SetWidth(media.widthDots))
+                commands.add(SetLength(band.heightDots + margin, 0, MediaType.CONTINUOUS))
+                band.elements.forEach { element -> element.toCommand()?.let(commands::add) }
+                commands.add(Print(1))
+                commands
+            }
+        }
+
+        /**
+         * Compile a numbered run of [count] labels, serials [startSerial], +[step], ...
+         * The first label is a regular job; the image buffer is then kept, and each
+         * following label only erases and redraws its serial fields before printing.
+         * A run costs its layout once plus a few dozen bytes per label.
+         */
+        fun compileLabelRun(
+            template: LabelTemplate,
+            startSerial: Long,
+            count: Int,
+            step: Long = 1,
+            copies: Int = 1
+        ): List<PrinterCommand> {
+            val fields = template.serialFields
+            val first = template.elements + fields.map { it.render(startSerial) }
+            if (step == 0L) return compile(first, template.media, copies * count)
+
+            val commands = ArrayList<PrinterCommand>(template.elements.size + 4 + (count - 1) * (2 * fields.size + 1))
+            commands.addAll(compile(first, template.media, copies))
+            var previous = startSerial
+            for (index in 1 until count) {
+                val serial = startSerial + index * step
+                fields.forEach { commands.add(it.eraseCommand(previous)) }
+                fields.forEach { field -> field.render(serial).toCommand()?.let(commands::add) }
+                commands.add(Print(copies))
+                previous = serial
+            }
+            return commands
+        }
+
+        /**
+         * One copy of a job compiled with [copies]. Segmented jobs ([compileSegments])
+         * hold every copy in sequence and keep the first; the others divide their `Print`s.
+         */
+        fun oneCopy(commands: List<PrinterCommand>, copies: Int): List<PrinterCommand> {
+            if (copies <= 1) return commands
+            if (isSegmented(commands)) return commands.subList(0, commands.size / copies)
+            return commands.map { if (it is Print) it.copy(copies = it.copies / copies) else it }
+        }
+
+        /**
+         * The segments of a job compiled with [compileSegments], each starting at its
+         * `ClearBuffer`; any other job is a single segment.
+         */
+        fun segments(commands: List<PrinterCommand>): List<List<PrinterCommand>> {
+            if (!isSegmented(commands)) return listOf(commands)
+            val starts = commands.indices.filter { commands[it] is ClearBuffer }.ifEmpty { listOf(0) }
+            return starts.mapIndexed { index, start ->
+                commands.subList(start, starts.getOrElse(index + 1) { commands.size })
+            }
+        }
+
+        /** [oneCopy] of a job printed [copies] times, ready to send again */
+        fun withCopies(commands: List<PrinterCommand>, copies: Int): List<PrinterCommand> {
+            if (copies == 1) return commands
+            if (isSegmented(commands)) return List(copies) { commands }.flatten()
+            return commands.map { if (it is Print) it.copy(copies = it.copies * copies) else it }
+        }
+
+        /**
+         * Fastest speed at which [commands] still print cleanly. Text takes any speed;
+         * thin barcode bars, small QR modules and large images need a slower head to stay
+         * sharp and scannable.
+         */
+        fun safeSpeed(commands: List<PrinterCommand>): Speed {
+            var width = 0L
+            var length = 0L
+            var imageDots = 0L
+            var speed = Speed.EXTRA_FAST
+            commands.forEach { command ->
+                when (command) {
+                    is SetWidth -> width = command.dots.toLong()
+                    is SetLength -> length = maxOf(length, command.dots.toLong())
+                    is DrawBarcode -> speed = minOf(speed, when {
+                        command.width <= 1 -> Speed.SLOW
+                        command.width == 2 -> Speed.MEDIUM
+                        else -> Speed.FAST
+                    })
+                    is DrawQr -> speed = minOf(speed, if (command.size <= SMALL_QR_MODULE) Speed.MEDIUM else Speed.FAST)
+                    is DrawImage -> imageDots += command.image.width.toLong() * command.image.height
+                    else -> { }
+                }
+            }
+            if (imageDots > 0) {
+                // Sin geometría conocida se asume que la imagen ocupa todo
+                val area = width * length
+                val fraction = if (area > 0) imageDots.toDouble() / area else 1.0
+                speed = minOf(speed, when {
+                    fraction < SMALL_IMAGE_FRACTION -> Speed.FAST
+                    fraction < LARGE_IMAGE_FRACTION -> Speed.MEDIUM
+                    else -> Speed.SLOW
+                })
+            }
+            return speed
+        }
+
+        /** Paper fed by every `Print`, each at the label length (gap included) set before it */
+        fun feedDots(commands: List<PrinterCommand>): Long {
+            var feed = 0L
+            var dots = 0L
+            commands.forEach { command ->
+                when (command) {
+                    is SetLength -> feed = (command.dots + command.gapDots).toLong()
+                    is Print -> dots += feed * command.copies * command.sets
+                    else -> { }
+                }
+            }
+            return dots
+        }
+
+        private fun isSegmented(commands: List<PrinterCommand>) = commands.count { it is SetLength } > 1
+
+        // Umbrales de safeSpeed
+        private const val SMALL_QR_MODULE = 3
+        private const val SMALL_IMAGE_FRACTION = 0.05
+        private const val LARGE_IMAGE_FRACTION = 0.3
+
+        private fun PrintElement.toCommand(): PrinterCommand? = when (this) {
+            is PrintElement.Text -> DrawText(content, x, y, style)
+            is PrintElement.QR -> DrawQr(data, x, y, size)
+            is PrintElement.Barcode -> DrawBarcode(data, x, y, type, width, height)
+            is PrintElement.Image -> DrawImage(image, x, y)
+            is PrintElement.Space -> null
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sincpro.printer.domain
+
+// ==================== Perfil ====================
+
+/**
+ * DOMAIN - What the SDK remembers about one printer between sessions
+ *
+ * Keyed by transport address (MAC, IP, or `usb`). [info] is what [IPrinter.getInfo]
+ * returned at [infoSavedAtMs]; [config] is the last configuration applied.
+ */
+data class PrinterProfile(
+    val key: String,
+    val info: PrinterInfo? = null,
+    val infoSavedAtMs: Long = 0,
+    val config: PrinterConfig? = null,
+    val transport: TransportStats? = null
+) {
+    fun isInfoFresh(maxAgeMs: Long, nowMs: Long = System.currentTimeMillis()): Boolean =
+        info != null && nowMs - infoSavedAtMs in 0..maxAgeMs
+}
+
+interface IPrinterProfileStore {
+    fun load(key: String): PrinterProfile?
+    fun save(profile: PrinterProfile)
+    fun clear()
+}
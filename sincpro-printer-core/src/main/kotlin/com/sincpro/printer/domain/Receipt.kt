@@ -1,17 +1,18 @@
 package com.sincpro.printer.domain
 
-import android.graphics.Bitmap
-
 data class Receipt(
     val header: List<ReceiptLine> = emptyList(),
     val body: List<ReceiptLine> = emptyList(),
     val footer: List<ReceiptLine> = emptyList()
 ) {
+    /** Lines in print order */
+    val lines: List<ReceiptLine> get() = header + body + footer
+
     fun toElements(mediaWidth: Int): List<PrintElement> {
         val elements = mutableListOf<PrintElement>()
-        var y = 20
+        var y = TOP_DOTS
 
-        (header + body + footer).forEach { line ->
+        lines.forEach { line ->
             val (element, height) = line.toElement(y, mediaWidth)
             if (element != null) elements.add(element)
             y += height
@@ -32,6 +33,9 @@ data class Receipt(
     }
 
     companion object {
+        /** Blank space above the first line */
+        const val TOP_DOTS = 20
+
         fun builder() = Builder()
     }
 }
@@ -89,12 +93,12 @@ sealed class ReceiptLine {
     }
 
     data class Image(
-        val bitmap: Bitmap,
+        val image: PrintImage,
         val alignment: Alignment = Alignment.CENTER
     ) : ReceiptLine() {
         override fun toElement(y: Int, mediaWidth: Int): Pair<PrintElement?, Int> {
-            val x = calculateX(alignment, mediaWidth, bitmap.width)
-            return PrintElement.Image(bitmap, x, y) to (bitmap.height + 10)
+            val x = calculateX(alignment, mediaWidth, image.width)
+            return PrintElement.Image(image, x, y) to (image.height + 10)
         }
     }
 
@@ -0,0 +1,68 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.CommandTrace
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.TraceEvent
+
+/**
+ * INFRASTRUCTURE - Command stream recorder
+ *
+ * Adapters call [record] for every command they send and [flush] when the
+ * transaction ends. Disabled, both are a single volatile read; enabled, they
+ * store a reference and a timestamp (commands are immutable, images are not copied).
+ */
+class CommandRecorder(private val maxEvents: Int = DEFAULT_MAX_EVENTS) {
+
+    companion object {
+        const val DEFAULT_MAX_EVENTS = 100_000
+    }
+
+    private val lock = Any()
+    private var events = ArrayList<TraceEvent>()
+    private var startedAtMs = 0L
+    private var startNanos = 0L
+    private var truncated = false
+
+    @Volatile
+    var isRecording: Boolean = false
+        private set
+
+    /** Start a new recording, discarding any unfinished one */
+    fun start() = synchronized(lock) {
+        events = ArrayList()
+        truncated = false
+        startedAtMs = System.currentTimeMillis()
+        startNanos = System.nanoTime()
+        isRecording = true
+    }
+
+    fun record(jobId: String, command: PrinterCommand) {
+        if (!isRecording) return
+        append { TraceEvent.Command(it, jobId, command) }
+    }
+
+    fun flush(jobId: String) {
+        if (!isRecording) return
+        append { TraceEvent.Flush(it, jobId) }
+    }
+
+    /** Stop and hand back what was recorded; empty if it was not recording */
+    fun stop(): CommandTrace = synchronized(lock) {
+        val trace = CommandTrace(startedAtMs, events, truncated)
+        isRecording = false
+        events = ArrayList()
+        trace
+    }
+
+    private inline fun append(event: (Long) -> TraceEvent) {
+        synchronized(lock) {
+            if (!isRecording) return
+            if (events.size >= maxEvents) {
+                // Se conserva el inicio de la sesión: es lo que se quiere reproducir
+                truncated = true
+                return
+            }
+            events.add(event(System.nanoTime() - startNanos))
+        }
+    }
+}
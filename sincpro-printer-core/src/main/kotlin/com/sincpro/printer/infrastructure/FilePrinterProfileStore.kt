@@ -0,0 +1,135 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.ConnectionType
+import com.sincpro.printer.domain.CutterConfig
+import com.sincpro.printer.domain.Density
+import com.sincpro.printer.domain.IPrinterProfileStore
+import com.sincpro.printer.domain.Orientation
+import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.PrinterInfo
+import com.sincpro.printer.domain.PrinterProfile
+import com.sincpro.printer.domain.Speed
+import com.sincpro.printer.domain.TransportStats
+import java.io.File
+import java.io.IOException
+import java.util.Properties
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * INFRASTRUCTURE - One small properties file per printer under [directory]
+ *
+ * Loaded profiles stay in memory; writes go to a temp file and are renamed, so a
+ * crash mid-write leaves the previous profile. Unreadable files count as missing.
+ */
+class FilePrinterProfileStore(private val directory: File) : IPrinterProfileStore {
+
+    private val cache = ConcurrentHashMap<String, PrinterProfile>()
+
+    override fun load(key: String): PrinterProfile? {
+        cache[key]?.let { return it }
+        val file = fileFor(key)
+        if (!file.exists()) return null
+        return try {
+            val properties = Properties()
+            file.inputStream().use { properties.load(it) }
+            properties.toProfile(key).also { cache[key] = it }
+        } catch (e: Exception) {
+            null
+        }
+    }
+
+    override fun save(profile: PrinterProfile) {
+        cache[profile.key] = profile
+        try {
+            directory.mkdirs()
+            val file = fileFor(profile.key)
+            val temp = File(directory, "${file.name}.tmp")
+            temp.outputStream().use { profile.toProperties().store(it, null) }
+            if (!temp.renameTo(file)) {
+                file.delete()
+                if (!temp.renameTo(file)) throw IOException("Cannot write ${file.name}")
+            }
+        } catch (e: IOException) {
+            // Sin disco el perfil sigue valiendo en memoria
+        }
+    }
+
+    override fun clear() {
+        cache.clear()
+        directory.listFiles { file -> file.name.endsWith(EXTENSION) }?.forEach { it.delete() }
+    }
+
+    private fun fileFor(key: String) = File(directory, key.replace(UNSAFE_CHARS, "_") + EXTENSION)
+
+    // ==================== Serialización ====================
+
+    private fun PrinterProfile.toProperties() = Properties().apply {
+        setProperty("key", key)
+        info?.let { info ->
+            setProperty("info.model", info.model)
+            setProperty("info.firmware", info.firmware)
+            setProperty("info.serial", info.serialNumber)
+            setProperty("info.dpi", info.dpi.toString())
+            setProperty("info.savedAt", infoSavedAtMs.toString())
+        }
+        config?.let { config ->
+            setProperty("config.marginLeft", config.marginLeft.toString())
+            setProperty("config.marginTop", config.marginTop.toString())
+            setProperty("config.density", config.density.name)
+            setProperty("config.speed", config.speed.name)
+            setProperty("config.orientation", config.orientation.name)
+            setProperty("config.cutter", config.autoCutter.enabled.toString())
+            setProperty("config.fullCut", config.autoCutter.fullCut.toString())
+            setProperty("config.autoSpeed", config.autoSpeed.toString())
+        }
+        transport?.let { transport ->
+            setProperty("transport.type", transport.type.name)
+            setProperty("transport.connectMs", transport.connectMs.toString())
+            setProperty("transport.attempts", transport.attempts.toString())
+            setProperty("transport.failures", transport.failures.toString())
+            transport.bytesPerSecond?.let { setProperty("transport.bytesPerSecond", it.toString()) }
+        }
+    }
+
+    private fun Properties.toProfile(key: String) = PrinterProfile(
+        key = key,
+        info = getProperty("info.model")?.let { model ->
+            PrinterInfo(
+                model = model,
+                firmware = getProperty("info.firmware", "Unknown"),
+                serialNumber = getProperty("info.serial", "Unknown"),
+                dpi = getProperty("info.dpi").toInt()
+            )
+        },
+        infoSavedAtMs = getProperty("info.savedAt")?.toLong() ?: 0,
+        config = getProperty("config.density")?.let { density ->
+            PrinterConfig(
+                marginLeft = getProperty("config.marginLeft").toInt(),
+                marginTop = getProperty("config.marginTop").toInt(),
+                density = Density.valueOf(density),
+                speed = Speed.valueOf(getProperty("config.speed")),
+                orientation = Orientation.valueOf(getProperty("config.orientation")),
+                autoCutter = CutterConfig(
+                    enabled = getProperty("config.cutter").toBoolean(),
+                    fullCut = getProperty("config.fullCut").toBoolean()
+                ),
+                autoSpeed = getProperty("config.autoSpeed").toBoolean()
+            )
+        },
+        transport = getProperty("transport.type")?.let { type ->
+            TransportStats(
+                address = key,
+                type = ConnectionType.valueOf(type),
+                connectMs = getProperty("transport.connectMs").toDouble(),
+                attempts = getProperty("transport.attempts").toInt(),
+                failures = getProperty("transport.failures").toInt(),
+                bytesPerSecond = getProperty("transport.bytesPerSecond")?.toDouble()
+            )
+        }
+    )
+
+    companion object {
+        private const val EXTENSION = ".properties"
+        private val UNSAFE_CHARS = Regex("[^A-Za-z0-9._-]")
+    }
+}
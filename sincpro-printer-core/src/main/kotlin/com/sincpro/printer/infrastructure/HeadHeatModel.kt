@@ -0,0 +1,130 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.Density
+import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.Speed
+import com.sincpro.printer.domain.ThermalPolicy
+import kotlin.math.exp
+
+/**
+ * INFRASTRUCTURE - Estimated print head heat and the throttle step it calls for
+ *
+ * Heat is the paper fed by recent jobs weighted by density, decaying exponentially with
+ * [ThermalPolicy.coolingMs]. It is compared to a budget that starts at
+ * [ThermalPolicy.heatBudgetDots]; an observed overheat replaces it with a bit less than
+ * the heat at that moment. Past 80 % of the budget the run steps down one [Step] at a time;
+ * below 50 % it steps back up, one step per cooling time so it does not oscillate.
+ */
+class HeadHeatModel(
+    val policy: ThermalPolicy,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    /**
+     * One throttle step: [speed] and [density] replace the configured ones (null keeps
+     * them), [gapMs] is waited before each job.
+     */
+    data class Step(val speed: Speed?, val density: Density?, val gapMs: Long) {
+        fun applyTo(config: PrinterConfig) =
+            config.copy(speed = speed ?: config.speed, density = density ?: config.density)
+    }
+
+    private var heat = 0.0
+    private var budget = policy.heatBudgetDots.toDouble()
+    private var updatedAtMs = clock()
+    private var changedAtMs = 0L
+
+    @Volatile
+    var level = 0
+        private set
+
+    @Volatile
+    var overheats = 0
+        private set
+
+    /** Steps from [base] down to the policy floor; without a known config only gaps apply */
+    fun ladder(base: PrinterConfig?): List<Step> {
+        val steps = ArrayList<Step>()
+        var speed = base?.speed
+        var density = base?.density
+        steps.add(Step(speed, density, 0))
+        if (base != null) {
+            Speed.values().filter { it < base.speed && it >= policy.minSpeed }.sortedDescending().forEach {
+                speed = it
+                steps.add(Step(speed, density, 0))
+            }
+            policy.minDensity?.let { floor ->
+                Density.values().filter { it < base.density && it >= floor }.sortedDescending().forEach {
+                    density = it
+                    steps.add(Step(speed, density, 0))
+                }
+            }
+        }
+        var gap = policy.gapStepMs
+        while (gap in 1..policy.maxGapMs) {
+            steps.add(Step(speed, density, gap))
+            gap += policy.gapStepMs
+        }
+        return steps
+    }
+
+    /** A job feeding [dots] left at [density] */
+    @Synchronized
+    fun sent(dots: Long, density: Density?) {
+        cool()
+        heat += dots * (density ?: Density.MEDIUM).level.toDouble() / Density.MEDIUM.level
+    }
+
+    /** The printer reported an overheat: the head takes less than assumed */
+    @Synchronized
+    fun overheated(maxLevel: Int) {
+        cool()
+        overheats++
+        budget = (heat * OVERHEAT_BUDGET_RATIO).coerceAtLeast(1.0)
+        // Ya está parada: bajar dos pasos para no volver a llegar al límite enseguida
+        change((level + 2).coerceAtMost(maxLevel))
+    }
+
+    /** Step for the next job, one of [maxLevel] + 1 */
+    @Synchronized
+    fun next(maxLevel: Int): Int {
+        cool()
+        val sinceChange = clock() - changedAtMs
+        val ratio = heat / budget
+        when {
+            // Pasado el presupuesto no se espera: la parada por temperatura está cerca
+            ratio > STEP_DOWN_RATIO && level < maxLevel && (ratio >= 1 || sinceChange >= policy.coolingMs / 4) ->
+                change(level + 1)
+            // Un paso por tiempo de enfriamiento; tras una pausa larga, varios a la vez
+            ratio < STEP_UP_RATIO && level > 0 && sinceChange >= policy.coolingMs ->
+                change((level - (sinceChange / policy.coolingMs).toInt()).coerceAtLeast(0))
+        }
+        level = level.coerceAtMost(maxLevel)
+        return level
+    }
+
+    /** Heat as a fraction of the budget */
+    @Synchronized
+    fun heat(): Double {
+        cool()
+        return heat / budget
+    }
+
+    private fun change(to: Int) {
+        level = to
+        changedAtMs = clock()
+    }
+
+    private fun cool() {
+        val now = clock()
+        val elapsed = now - updatedAtMs
+        if (elapsed > 0) heat *= exp(-elapsed.toDouble() / policy.coolingMs)
+        updatedAtMs = now
+    }
+
+    private companion object {
+        const val STEP_DOWN_RATIO = 0.8
+        const val STEP_UP_RATIO = 0.5
+        const val OVERHEAT_BUDGET_RATIO = 0.9
+    }
+}
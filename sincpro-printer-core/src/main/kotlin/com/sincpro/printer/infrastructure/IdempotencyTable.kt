@@ -0,0 +1,74 @@
+package com.sincpro.printer.infrastructure
+
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * INFRASTRUCTURE - Outcome of keyed print calls
+ *
+ * Entries expire [ttlMs] after they were written; at most [capacity] are kept,
+ * the oldest dropped first. In memory only: a retry after an app restart prints again.
+ * [withKey] serializes calls for one key without blocking other keys.
+ */
+class IdempotencyTable(
+    val ttlMs: Long = DEFAULT_TTL_MS,
+    val capacity: Int = DEFAULT_CAPACITY,
+    private val clock: () -> Long = System::currentTimeMillis
+) {
+
+    companion object {
+        const val DEFAULT_TTL_MS = 10 * 60 * 1000L
+        const val DEFAULT_CAPACITY = 1000
+    }
+
+    enum class Outcome { DELIVERED, UNCERTAIN }
+
+    data class Entry(val jobId: String, val outcome: Outcome, val atMs: Long)
+
+    // Orden de inserción: el primero es el más antiguo
+    private val entries = LinkedHashMap<String, Entry>()
+
+    // Un candado por clave en uso; se suelta cuando nadie lo espera
+    private class KeyLock {
+        val mutex = Mutex()
+        var holders = 0
+    }
+
+    private val locks = HashMap<String, KeyLock>()
+
+    /** Run [block] with no other call for [key] in progress */
+    suspend fun <T> withKey(key: String, block: suspend () -> T): T {
+        val lock = synchronized(locks) { locks.getOrPut(key) { KeyLock() }.also { it.holders++ } }
+        try {
+            return lock.mutex.withLock { block() }
+        } finally {
+            synchronized(locks) {
+                if (--lock.holders == 0) locks.remove(key)
+            }
+        }
+    }
+
+    @Synchronized
+    fun get(key: String): Entry? {
+        val entry = entries[key] ?: return null
+        if (clock() - entry.atMs < ttlMs) return entry
+        entries.remove(key)
+        return null
+    }
+
+    @Synchronized
+    fun put(key: String, jobId: String, outcome: Outcome) {
+        entries.remove(key)
+        entries[key] = Entry(jobId, outcome, clock())
+        val iterator = entries.values.iterator()
+        while (entries.size > capacity) {
+            iterator.next()
+            iterator.remove()
+        }
+    }
+
+    @Synchronized
+    fun remove(key: String) {
+        entries.remove(key)
+    }
+}
@@ -0,0 +1,68 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.MonoBitmap
+import com.sincpro.printer.domain.PrintImage
+
+/**
+ * INFRASTRUCTURE - Image to 1-bpp conversion
+ *
+ * Pure JVM so it can be benchmarked off-device. Both methods stream the
+ * source row by row: extra memory is O(width) besides the output.
+ */
+object ImageDither {
+
+    const val DEFAULT_THRESHOLD = 128
+
+    fun threshold(image: PrintImage, level: Int = DEFAULT_THRESHOLD): MonoBitmap {
+        val result = MonoBitmap(image.width, image.height)
+        val row = IntArray(image.width)
+        for (y in 0 until image.height) {
+            image.readRow(y, row)
+            for (x in 0 until image.width) {
+                if (luminance(row[x]) < level) result.set(x, y)
+            }
+        }
+        return result
+    }
+
+    /**
+     * Floyd–Steinberg error diffusion, the equivalent of `drawBitmap(..., dithering = true)`.
+     */
+    fun floydSteinberg(image: PrintImage): MonoBitmap {
+        val width = image.width
+        val result = MonoBitmap(width, image.height)
+        val row = IntArray(width)
+        // Error acumulado con un margen de 1 a cada lado: índice x + 1
+        var current = IntArray(width + 2)
+        var next = IntArray(width + 2)
+
+        for (y in 0 until image.height) {
+            image.readRow(y, row)
+            for (x in 0 until width) {
+                val value = luminance(row[x]) + current[x + 1]
+                val black = value < DEFAULT_THRESHOLD
+                if (black) result.set(x, y)
+
+                val error = value - if (black) 0 else 255
+                current[x + 2] += (error * 7) shr 4
+                next[x] += (error * 3) shr 4
+                next[x + 1] += (error * 5) shr 4
+                next[x + 2] += error shr 4
+            }
+            val done = current
+            current = next
+            next = done
+            next.fill(0)
+        }
+        return result
+    }
+
+    /**
+     * Perceived brightness 0-255. Transparent pixels count as white,
+     * as in `BinaryConverter`.
+     */
+    fun luminance(argb: Int): Int {
+        if (argb ushr 24 < 0x80) return 255
+        return (299 * (argb shr 16 and 0xFF) + 587 * (argb shr 8 and 0xFF) + 114 * (argb and 0xFF)) / 1000
+    }
+}
@@ -0,0 +1,48 @@
+package com.sincpro.printer.infrastructure
+
+import java.io.File
+import java.io.IOException
+
+/**
+ * INFRASTRUCTURE - Rows already printed per file import, one small file per import id
+ *
+ * Written with the same temp file + rename as [FilePrinterProfileStore]. A missing or
+ * unreadable checkpoint reads as 0, which restarts the import from the first row.
+ */
+class ImportCheckpoints(private val directory: File) {
+
+    fun load(importId: String): Long = try {
+        fileFor(importId).takeIf { it.exists() }?.readText()?.trim()?.toLong() ?: 0
+    } catch (e: Exception) {
+        0
+    }
+
+    fun save(importId: String, rows: Long) {
+        try {
+            directory.mkdirs()
+            val file = fileFor(importId)
+            val temp = File(directory, "${file.name}.tmp")
+            temp.writeText(rows.toString())
+            if (!temp.renameTo(file)) {
+                file.delete()
+                if (!temp.renameTo(file)) throw IOException("Cannot write ${file.name}")
+            }
+        } catch (e: IOException) {
+            // Sin checkpoint un reintento vuelve a empezar: se reimprime, no se pierde nada
+        }
+    }
+
+    fun clear(importId: String) {
+        fileFor(importId).delete()
+    }
+
+    // Los URI de contenido son largos y con caracteres no válidos: se usa un hash estable
+    private fun fileFor(importId: String) =
+        File(directory, importId.replace(UNSAFE_CHARS, "_").take(MAX_NAME) + "-" + importId.hashCode().toUInt() + EXTENSION)
+
+    companion object {
+        private const val EXTENSION = ".checkpoint"
+        private const val MAX_NAME = 64
+        private val UNSAFE_CHARS = Regex("[^A-Za-z0-9._-]")
+    }
+}
@@ -0,0 +1,50 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.PrinterCommand
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * INFRASTRUCTURE - Media geometry kept on the printer across a label run
+ *
+ * While a session is open, [filter] drops `SetWidth`/`SetLength` when they match the
+ * geometry of the last job that reached the printer. A different media simply sends
+ * them again. `ClearBuffer` always stays: it is a few bytes and keeps a failed job's
+ * leftovers off the next label. Sessions nest; geometry is forgotten when the
+ * outermost one ends or on [invalidate] (connection change, failed job).
+ */
+class MediaSession {
+
+    private val depth = AtomicInteger()
+
+    @Volatile
+    private var applied: List<PrinterCommand>? = null
+
+    val isActive: Boolean get() = depth.get() > 0
+
+    fun begin() {
+        depth.incrementAndGet()
+    }
+
+    fun end() {
+        if (depth.updateAndGet { (it - 1).coerceAtLeast(0) } == 0) applied = null
+    }
+
+    fun invalidate() {
+        applied = null
+    }
+
+    /** Commands to send for a compiled job */
+    fun filter(commands: List<PrinterCommand>): List<PrinterCommand> {
+        if (!isActive || applied == null || geometryOf(commands) != applied) return commands
+        return commands.filterNot { it.isGeometry() }
+    }
+
+    /** The compiled (unfiltered) job reached the printer */
+    fun sent(commands: List<PrinterCommand>) {
+        if (isActive) applied = geometryOf(commands)
+    }
+
+    private fun geometryOf(commands: List<PrinterCommand>) = commands.filter { it.isGeometry() }
+
+    private fun PrinterCommand.isGeometry() = this is PrinterCommand.SetWidth || this is PrinterCommand.SetLength
+}
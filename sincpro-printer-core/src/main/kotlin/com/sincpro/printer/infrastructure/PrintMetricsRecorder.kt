@@ -0,0 +1,130 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.IPrintMetrics
+import com.sincpro.printer.domain.MetricsSnapshot
+import com.sincpro.printer.domain.PhaseStats
+import com.sincpro.printer.domain.PrintPhase
+import com.sincpro.printer.domain.PrinterMetrics
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * INFRASTRUCTURE - Lock-free print metrics
+ *
+ * One log-linear histogram per printer and phase. A record is a map lookup
+ * plus a few atomic increments, so it is safe to call on every element.
+ */
+class PrintMetricsRecorder : IPrintMetrics {
+
+    @Volatile
+    override var activePrinterId: String = UNKNOWN_PRINTER
+
+    private val printers = ConcurrentHashMap<String, PrinterHistograms>()
+
+    override fun record(phase: PrintPhase, nanos: Long, printerId: String) {
+        histogramsFor(printerId).phases[phase.ordinal].record(nanos)
+    }
+
+    override fun addPayloadBytes(bytes: Long, printerId: String) {
+        histogramsFor(printerId).payloadBytes.addAndGet(bytes)
+    }
+
+    override fun snapshot(): MetricsSnapshot {
+        val result = printers.map { (id, histograms) ->
+            PrinterMetrics(
+                printerId = id,
+                phases = PrintPhase.values()
+                    .filter { histograms.phases[it.ordinal].count() > 0 }
+                    .associateWith { histograms.phases[it.ordinal].stats() },
+                payloadBytes = histograms.payloadBytes.get()
+            )
+        }
+        return MetricsSnapshot(result, System.currentTimeMillis())
+    }
+
+    override fun reset() {
+        printers.clear()
+    }
+
+    private fun histogramsFor(printerId: String): PrinterHistograms =
+        printers[printerId] ?: printers.getOrPut(printerId) { PrinterHistograms() }
+
+    private class PrinterHistograms {
+        val phases = Array(PrintPhase.values().size) { LatencyHistogram() }
+        val payloadBytes = AtomicLong()
+    }
+
+    companion object {
+        const val UNKNOWN_PRINTER = "unknown"
+    }
+}
+
+/**
+ * Log-linear histogram over microseconds: 8 sub-buckets per power of two
+ * (≈12% relative error), from 1 µs up to ~25 days.
+ */
+internal class LatencyHistogram {
+
+    private val buckets = AtomicLongArray(BUCKET_COUNT)
+    private val samples = AtomicLong()
+    private val totalNanos = AtomicLong()
+    private val maxNanos = AtomicLong()
+
+    fun record(nanos: Long) {
+        val value = nanos.coerceAtLeast(0)
+        buckets.incrementAndGet(bucketOf(value / 1_000))
+        samples.incrementAndGet()
+        totalNanos.addAndGet(value)
+        maxNanos.accumulateAndGet(value) { a, b -> maxOf(a, b) }
+    }
+
+    fun count(): Long = samples.get()
+
+    fun stats(): PhaseStats {
+        // Copia local: los percentiles salen de una vista consistente
+        val snapshot = LongArray(BUCKET_COUNT) { buckets.get(it) }
+        val total = snapshot.sum()
+        return PhaseStats(
+            count = total,
+            p50Ms = percentileMs(snapshot, total, 0.50),
+            p95Ms = percentileMs(snapshot, total, 0.95),
+            p99Ms = percentileMs(snapshot, total, 0.99),
+            maxMs = maxNanos.get() / 1_000_000.0,
+            totalMs = totalNanos.get() / 1_000_000.0
+        )
+    }
+
+    private fun percentileMs(snapshot: LongArray, total: Long, quantile: Double): Double {
+        if (total == 0L) return 0.0
+        val target = kotlin.math.ceil(total * quantile).toLong().coerceAtLeast(1)
+        var seen = 0L
+        snapshot.forEachIndexed { index, bucketCount ->
+            seen += bucketCount
+            if (seen >= target) return midpointMicros(index) / 1_000.0
+        }
+        return midpointMicros(BUCKET_COUNT - 1) / 1_000.0
+    }
+
+    companion object {
+        private const val SUB_BITS = 3
+        private const val SUB_COUNT = 1 shl SUB_BITS
+        private const val MAX_EXPONENT = 40
+        private const val BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT
+
+        fun bucketOf(micros: Long): Int {
+            if (micros < SUB_COUNT) return micros.toInt()
+            val exponent = (63 - java.lang.Long.numberOfLeadingZeros(micros)).coerceAtMost(MAX_EXPONENT)
+            val mantissa = ((micros ushr (exponent - SUB_BITS)) and (SUB_COUNT - 1).toLong()).toInt()
+            return ((exponent - SUB_BITS + 1) * SUB_COUNT + mantissa).coerceAtMost(BUCKET_COUNT - 1)
+        }
+
+        fun midpointMicros(bucket: Int): Double {
+            if (bucket < SUB_COUNT) return bucket.toDouble()
+            val exponent = bucket / SUB_COUNT + SUB_BITS - 1
+            val mantissa = bucket % SUB_COUNT + SUB_COUNT
+            val width = 1L shl (exponent - SUB_BITS)
+            return mantissa * width + width / 2.0
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.MonoImage
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.SentJob
+
+/**
+ * INFRASTRUCTURE - Recently sent jobs in compiled form
+ *
+ * Adapters [remember] every job that reached the printer as one copy of its commands,
+ * so a reprint skips layout and image decoding entirely. A segmented receipt keeps its
+ * segments in order ([PrinterCommand.segments]), so its reprint goes out segmented again
+ * and is cut once per copy. Holds at most [capacity] jobs
+ * and about [maxBytes] of memory (images are kept by reference, ARGB counted at
+ * 4 bytes per pixel); the oldest are dropped first.
+ */
+class ReprintCache(
+    val capacity: Int = DEFAULT_CAPACITY,
+    val maxBytes: Long = DEFAULT_MAX_BYTES
+) {
+
+    companion object {
+        const val DEFAULT_CAPACITY = 20
+        const val DEFAULT_MAX_BYTES = 8L * 1024 * 1024
+
+        // Objeto y referencia en la lista
+        private const val COMMAND_OVERHEAD_BYTES = 32L
+    }
+
+    private class Entry(val job: SentJob, val commands: List<PrinterCommand>)
+
+    // Orden de inserción: el primero es el más antiguo
+    private val entries = LinkedHashMap<String, Entry>()
+    private var totalBytes = 0L
+
+    /** Keep [commands], compiled with [copies], under [jobId] */
+    @Synchronized
+    fun remember(jobId: String, commands: List<PrinterCommand>, copies: Int = 1) {
+        val single = PrinterCommand.oneCopy(commands, copies)
+        val bytes = retainedBytes(single)
+        entries.remove(jobId)?.let { totalBytes -= it.job.retainedBytes }
+        if (bytes > maxBytes) return
+
+        val labels = single.filterIsInstance<PrinterCommand.Print>().sumOf { it.copies * it.sets }
+        entries[jobId] = Entry(SentJob(jobId, System.currentTimeMillis(), labels, bytes), single)
+        totalBytes += bytes
+        val iterator = entries.values.iterator()
+        while (entries.size > capacity || totalBytes > maxBytes) {
+            totalBytes -= iterator.next().job.retainedBytes
+            iterator.remove()
+        }
+    }
+
+    /** Commands to print [jobId] again [copies] times, null when no longer cached */
+    @Synchronized
+    fun commands(jobId: String, copies: Int = 1): List<PrinterCommand>? =
+        entries[jobId]?.let { PrinterCommand.withCopies(it.commands, copies) }
+
+    /** Cached jobs, newest first */
+    @Synchronized
+    fun recent(): List<SentJob> = entries.values.map { it.job }.asReversed()
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        totalBytes = 0
+    }
+
+    private fun retainedBytes(commands: List<PrinterCommand>): Long = commands.sumOf { command ->
+        when (command) {
+            is PrinterCommand.DrawText -> 2L * command.content.length
+            is PrinterCommand.DrawQr -> 2L * command.data.length
+            is PrinterCommand.DrawBarcode -> 2L * command.data.length
+            is PrinterCommand.DrawImage -> {
+                val image = command.image
+                if (image is MonoImage) image.raster.bits.size.toLong() else 4L * image.width * image.height
+            }
+            else -> 0L
+        } + COMMAND_OVERHEAD_BYTES
+    }
+}
@@ -0,0 +1,117 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.BarcodeType
+import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.MediaType
+import com.sincpro.printer.domain.PrinterCommand
+import java.io.ByteArrayOutputStream
+
+/**
+ * INFRASTRUCTURE - SLCS-style command encoder
+ *
+ * Encodes [PrinterCommand]s with SLCS syntax (`CB`, `SW`, `SL`, `T`, `B1`, `B2`, `LD`, `BD`, `P`)
+ * and the vendor's font, symbology and media codes, one CRLF-terminated command each.
+ *
+ * The Bixolon library encodes in native code and may differ byte for byte, so this
+ * is for payload sizing, the loopback emulator and benchmarks, not for real printers.
+ */
+object SlcsEncoder {
+
+    private const val CRLF_BYTES = 2
+    private const val TYPICAL_COMMAND_BYTES = 48
+
+    fun encode(commands: List<PrinterCommand>): ByteArray {
+        val out = ByteArrayOutputStream(commands.size * TYPICAL_COMMAND_BYTES)
+        commands.forEach { encodeTo(it, out) }
+        return out.toByteArray()
+    }
+
+    fun encodeTo(command: PrinterCommand, out: ByteArrayOutputStream) {
+        if (command is PrinterCommand.DrawImage) {
+            val raster = ImageDither.floydSteinberg(command.image)
+            writeLatin1(out, imageHeader(command, raster.bytesPerRow))
+            out.write(raster.bits)
+        } else {
+            writeLatin1(out, textCommand(command))
+        }
+        out.write('\r'.code)
+        out.write('\n'.code)
+    }
+
+    /**
+     * Size [encode] would produce, without rasterizing images.
+     */
+    fun encodedSize(commands: List<PrinterCommand>): Long = commands.sumOf { command ->
+        val body = if (command is PrinterCommand.DrawImage) {
+            val bytesPerRow = (command.image.width + 7) / 8
+            imageHeader(command, bytesPerRow).length + bytesPerRow.toLong() * command.image.height
+        } else {
+            textCommand(command).length.toLong()
+        }
+        body + CRLF_BYTES
+    }
+
+    // ==================== Comandos ====================
+
+    private fun textCommand(command: PrinterCommand): String = when (command) {
+        is PrinterCommand.ClearBuffer -> "CB"
+        is PrinterCommand.SetWidth -> "SW${command.dots}"
+        is PrinterCommand.SetLength -> "SL${command.dots},${command.gapDots},${command.type.code()},0"
+        is PrinterCommand.DrawText -> buildString {
+            append('T').append(command.x).append(',').append(command.y).append(',')
+            append(command.style.fontSize.code()).append(",1,1,0,0,N,")
+            append(if (command.style.bold) 'B' else 'N').append(",'")
+            appendQuoted(command.content)
+            append('\'')
+        }
+        is PrinterCommand.DrawQr -> "B2${command.x},${command.y},2,${command.size},M,0,'${quote(command.data)}'"
+        is PrinterCommand.DrawBarcode ->
+            "B1${command.x},${command.y},${command.type.code()},${command.width},6,${command.height},0,1,'${quote(command.data)}'"
+        is PrinterCommand.EraseArea ->
+            "BD${command.x},${command.y},${command.x + command.width},${command.y + command.height},D"
+        is PrinterCommand.Print -> "P${command.copies},${command.sets}"
+        is PrinterCommand.DrawImage -> error("Images are encoded as binary")
+    }
+
+    private fun imageHeader(command: PrinterCommand.DrawImage, bytesPerRow: Int) =
+        "LD${command.x},${command.y},$bytesPerRow,${command.image.height},"
+
+    private fun quote(value: String) = if ('\'' in value) buildString { appendQuoted(value) } else value
+
+    private fun StringBuilder.appendQuoted(value: String) {
+        value.forEach { char ->
+            if (char == '\'') append('\\')
+            append(char)
+        }
+    }
+
+    private fun writeLatin1(out: ByteArrayOutputStream, value: String) {
+        for (char in value) out.write(if (char.code < 0x100) char.code else '?'.code)
+    }
+
+    // ==================== Códigos del fabricante ====================
+
+    private fun FontSize.code() = when (this) {
+        FontSize.SMALL -> '1'
+        FontSize.MEDIUM -> '3'
+        FontSize.LARGE -> '5'
+        FontSize.XLARGE -> '6'
+    }
+
+    private fun MediaType.code() = when (this) {
+        MediaType.CONTINUOUS -> 'C'
+        MediaType.GAP -> 'G'
+        MediaType.BLACK_MARK -> 'B'
+    }
+
+    private fun BarcodeType.code() = when (this) {
+        BarcodeType.CODE39 -> 0
+        BarcodeType.CODE128 -> 1
+        BarcodeType.CODABAR -> 3
+        BarcodeType.CODE93 -> 4
+        BarcodeType.UPCA -> 5
+        BarcodeType.UPCE -> 6
+        BarcodeType.EAN13 -> 7
+        BarcodeType.EAN8 -> 8
+    }
+}
@@ -0,0 +1,96 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.ConnectionState
+import com.sincpro.printer.domain.PrinterStatus
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.merge
+import kotlinx.coroutines.flow.shareIn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
+
+/**
+ * INFRASTRUCTURE - Status changes of one printer, read once for every listener
+ *
+ * Polls [read] only while [statuses] is collected and the link is up. Each unchanged
+ * reading doubles the interval, from [minIntervalMs] up to [maxIntervalMs]; a change, or a
+ * printer that is busy or reports an error, goes back to the minimum. Job activity defers
+ * the next read until [minIntervalMs] after the last event, so a burst costs one round trip.
+ *
+ * Readings the adapter gets some other way (a vendor callback, a direct getStatus) go
+ * through [offer]. Equal consecutive states are emitted once; a new collector gets the
+ * latest right away.
+ */
+class StatusPoller(
+    private val read: suspend () -> Result<PrinterStatus>,
+    private val connectionState: StateFlow<ConnectionState>,
+    private val activity: Flow<*>,
+    scope: CoroutineScope,
+    private val minIntervalMs: Long = MIN_INTERVAL_MS,
+    private val maxIntervalMs: Long = MAX_INTERVAL_MS
+) {
+
+    private val offered = MutableSharedFlow<PrinterStatus>(
+        extraBufferCapacity = OFFER_BUFFER,
+        onBufferOverflow = BufferOverflow.DROP_OLDEST
+    )
+
+    val statuses: SharedFlow<PrinterStatus> = merge(polled(), offered)
+        .distinctUntilChanged()
+        .shareIn(scope, SharingStarted.WhileSubscribed(), replay = 1)
+
+    /** A reading obtained outside the poller; dropped when nobody is listening */
+    fun offer(status: PrinterStatus) {
+        offered.tryEmit(status)
+    }
+
+    private fun polled(): Flow<PrinterStatus> = channelFlow {
+        val wake = Channel<Unit>(Channel.CONFLATED)
+        launch { activity.collect { wake.trySend(Unit) } }
+
+        connectionState.collectLatest { state ->
+            if (state != ConnectionState.CONNECTED) {
+                // Sin enlace no hay nada que leer: se emite el estado y se espera al siguiente
+                send(PrinterStatus.disconnected().copy(connectionState = state))
+                return@collectLatest
+            }
+            var interval = minIntervalMs
+            var last: PrinterStatus? = null
+            while (true) {
+                val status = read().getOrElse { PrinterStatus.error("Status read failed: ${it.message}") }
+                send(status)
+                interval = if (status == last && !status.needsWatching()) {
+                    (interval * 2).coerceAtMost(maxIntervalMs)
+                } else {
+                    minIntervalMs
+                }
+                last = status
+
+                var wait = interval
+                while (withTimeoutOrNull(wait) { wake.receive() } != null) {
+                    // Actividad: leer poco después del último evento, no en cada uno
+                    wait = minIntervalMs
+                    interval = minIntervalMs
+                }
+            }
+        }
+    }
+
+    // Estados que cambian solos en segundos: imprimiendo, o esperando que alguien lo arregle
+    private fun PrinterStatus.needsWatching() = isBuildingImage || isPrinting || isPausedInPeeler || hasError
+
+    companion object {
+        const val MIN_INTERVAL_MS = 500L
+        const val MAX_INTERVAL_MS = 8_000L
+        private const val OFFER_BUFFER = 8
+    }
+}
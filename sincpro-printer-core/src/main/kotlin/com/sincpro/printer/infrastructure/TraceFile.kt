@@ -0,0 +1,281 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.Alignment
+import com.sincpro.printer.domain.ArgbImage
+import com.sincpro.printer.domain.BarcodeType
+import com.sincpro.printer.domain.CommandTrace
+import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.MediaType
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.TextStyle
+import com.sincpro.printer.domain.TraceEvent
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * INFRASTRUCTURE - Compact binary trace format
+ *
+ * Header: `SPTR`, version byte, start time (ms), truncated flag. Body, gzipped: one tag byte per
+ * event, the time since the previous event as a varint (ns) and the command fields
+ * as varints / UTF-8 strings. The job id is only written when it changes.
+ *
+ * Images are stored as their dithered 1-bpp raster and read back as black and
+ * white [ArgbImage]s: what the printer would burn, at 1/32 of the ARGB size.
+ */
+object TraceFile {
+
+    private val MAGIC = byteArrayOf('S'.code.toByte(), 'P'.code.toByte(), 'T'.code.toByte(), 'R'.code.toByte())
+    private const val VERSION = 1
+
+    // Etiquetas de evento
+    private const val TAG_END = 0
+    private const val TAG_CLEAR_BUFFER = 1
+    private const val TAG_SET_WIDTH = 2
+    private const val TAG_SET_LENGTH = 3
+    private const val TAG_TEXT = 4
+    private const val TAG_QR = 5
+    private const val TAG_BARCODE = 6
+    private const val TAG_IMAGE = 7
+    private const val TAG_PRINT = 8
+    private const val TAG_ERASE = 9
+    private const val TAG_JOB = 0x7E
+    private const val TAG_FLUSH = 0x7F
+
+    private const val BLACK = 0xFF000000.toInt()
+    private const val WHITE = 0xFFFFFFFF.toInt()
+
+    // ==================== Escritura ====================
+
+    fun write(trace: CommandTrace, output: OutputStream) {
+        val header = DataOutputStream(output)
+        header.write(MAGIC)
+        header.writeByte(VERSION)
+        header.writeLong(trace.startedAtMs)
+        header.writeBoolean(trace.truncated)
+        header.flush()
+
+        val gzip = GZIPOutputStream(output)
+        val out = DataOutputStream(BufferedOutputStream(gzip))
+        var jobId: String? = null
+        var previous = 0L
+        for (event in trace.events) {
+            if (event.jobId != jobId) {
+                out.writeByte(TAG_JOB)
+                writeString(out, event.jobId)
+                jobId = event.jobId
+            }
+            when (event) {
+                is TraceEvent.Command -> out.writeByte(tagOf(event.command))
+                is TraceEvent.Flush -> out.writeByte(TAG_FLUSH)
+            }
+            writeVarLong(out, event.offsetNanos - previous)
+            previous = event.offsetNanos
+            if (event is TraceEvent.Command) writeFields(out, event.command)
+        }
+        out.writeByte(TAG_END)
+        out.flush()
+        gzip.finish()
+    }
+
+    private fun tagOf(command: PrinterCommand) = when (command) {
+        is PrinterCommand.ClearBuffer -> TAG_CLEAR_BUFFER
+        is PrinterCommand.SetWidth -> TAG_SET_WIDTH
+        is PrinterCommand.SetLength -> TAG_SET_LENGTH
+        is PrinterCommand.DrawText -> TAG_TEXT
+        is PrinterCommand.DrawQr -> TAG_QR
+        is PrinterCommand.DrawBarcode -> TAG_BARCODE
+        is PrinterCommand.DrawImage -> TAG_IMAGE
+        is PrinterCommand.EraseArea -> TAG_ERASE
+        is PrinterCommand.Print -> TAG_PRINT
+    }
+
+    private fun writeFields(out: DataOutputStream, command: PrinterCommand) {
+        when (command) {
+            is PrinterCommand.ClearBuffer -> Unit
+            is PrinterCommand.SetWidth -> writeVarInt(out, command.dots)
+            is PrinterCommand.SetLength -> {
+                writeVarInt(out, command.dots)
+                writeVarInt(out, command.gapDots)
+                out.writeByte(command.type.ordinal)
+            }
+            is PrinterCommand.DrawText -> {
+                writeString(out, command.content)
+                writeVarInt(out, command.x)
+                writeVarInt(out, command.y)
+                // Tamaño, negrita y alineación en un solo byte
+                val style = command.style
+                out.writeByte(style.fontSize.ordinal or (style.alignment.ordinal shl 2) or (if (style.bold) 0x10 else 0))
+            }
+            is PrinterCommand.DrawQr -> {
+                writeString(out, command.data)
+                writeVarInt(out, command.x)
+                writeVarInt(out, command.y)
+                writeVarInt(out, command.size)
+            }
+            is PrinterCommand.DrawBarcode -> {
+                writeString(out, command.data)
+                writeVarInt(out, command.x)
+                writeVarInt(out, command.y)
+                out.writeByte(command.type.ordinal)
+                writeVarInt(out, command.width)
+                writeVarInt(out, command.height)
+            }
+            is PrinterCommand.DrawImage -> {
+                writeVarInt(out, command.x)
+                writeVarInt(out, command.y)
+                val raster = ImageDither.floydSteinberg(command.image)
+                writeVarInt(out, raster.width)
+                writeVarInt(out, raster.height)
+                out.write(raster.bits)
+            }
+            is PrinterCommand.EraseArea -> {
+                writeVarInt(out, command.x)
+                writeVarInt(out, command.y)
+                writeVarInt(out, command.width)
+                writeVarInt(out, command.height)
+            }
+            is PrinterCommand.Print -> {
+                writeVarInt(out, command.copies)
+                writeVarInt(out, command.sets)
+            }
+        }
+    }
+
+    // ==================== Lectura ====================
+
+    fun read(input: InputStream): CommandTrace {
+        val header = DataInputStream(input)
+        val magic = ByteArray(MAGIC.size)
+        header.readFully(magic)
+        if (!magic.contentEquals(MAGIC)) throw IOException("Not a command trace")
+        val version = header.readUnsignedByte()
+        if (version != VERSION) throw IOException("Unsupported trace version $version")
+        val startedAtMs = header.readLong()
+        val truncated = header.readBoolean()
+
+        val data = DataInputStream(BufferedInputStream(GZIPInputStream(input)))
+        val events = ArrayList<TraceEvent>()
+        var jobId = ""
+        var offset = 0L
+        while (true) {
+            val tag = data.readUnsignedByte()
+            if (tag == TAG_END) break
+            if (tag == TAG_JOB) {
+                jobId = readString(data)
+                continue
+            }
+            offset += readVarLong(data)
+            events.add(
+                if (tag == TAG_FLUSH) TraceEvent.Flush(offset, jobId)
+                else TraceEvent.Command(offset, jobId, readCommand(data, tag))
+            )
+        }
+        return CommandTrace(startedAtMs, events, truncated)
+    }
+
+    private fun readCommand(data: DataInputStream, tag: Int): PrinterCommand = when (tag) {
+        TAG_CLEAR_BUFFER -> PrinterCommand.ClearBuffer
+        TAG_SET_WIDTH -> PrinterCommand.SetWidth(readVarInt(data))
+        TAG_SET_LENGTH -> PrinterCommand.SetLength(
+            dots = readVarInt(data),
+            gapDots = readVarInt(data),
+            type = MediaType.values()[data.readUnsignedByte()]
+        )
+        TAG_TEXT -> {
+            val content = readString(data)
+            val x = readVarInt(data)
+            val y = readVarInt(data)
+            val style = data.readUnsignedByte()
+            PrinterCommand.DrawText(
+                content, x, y,
+                TextStyle(
+                    fontSize = FontSize.values()[style and 0x03],
+                    bold = style and 0x10 != 0,
+                    alignment = Alignment.values()[(style shr 2) and 0x03]
+                )
+            )
+        }
+        TAG_QR -> PrinterCommand.DrawQr(readString(data), readVarInt(data), readVarInt(data), readVarInt(data))
+        TAG_BARCODE -> PrinterCommand.DrawBarcode(
+            data = readString(data),
+            x = readVarInt(data),
+            y = readVarInt(data),
+            type = BarcodeType.values()[data.readUnsignedByte()],
+            width = readVarInt(data),
+            height = readVarInt(data)
+        )
+        TAG_IMAGE -> {
+            val x = readVarInt(data)
+            val y = readVarInt(data)
+            PrinterCommand.DrawImage(readRaster(data), x, y)
+        }
+        TAG_ERASE -> PrinterCommand.EraseArea(readVarInt(data), readVarInt(data), readVarInt(data), readVarInt(data))
+        TAG_PRINT -> PrinterCommand.Print(readVarInt(data), readVarInt(data))
+        else -> throw IOException("Unknown trace tag $tag")
+    }
+
+    private fun readRaster(data: DataInputStream): ArgbImage {
+        val width = readVarInt(data)
+        val height = readVarInt(data)
+        val bytesPerRow = (width + 7) / 8
+        val bits = ByteArray(bytesPerRow * height)
+        data.readFully(bits)
+        val pixels = IntArray(width * height)
+        for (y in 0 until height) {
+            for (x in 0 until width) {
+                val black = (bits[y * bytesPerRow + (x ushr 3)].toInt() and (0x80 ushr (x and 7))) != 0
+                pixels[y * width + x] = if (black) BLACK else WHITE
+            }
+        }
+        return ArgbImage(width, height, pixels)
+    }
+
+    // ==================== Varints ====================
+
+    private fun writeVarInt(out: DataOutputStream, value: Int) = writeVarLong(out, value.toLong())
+
+    /** Zigzag + LEB128: small magnitudes of either sign take one byte */
+    private fun writeVarLong(out: DataOutputStream, value: Long) {
+        var rest = (value shl 1) xor (value shr 63)
+        while (rest and 0x7FL.inv() != 0L) {
+            out.writeByte(((rest and 0x7F) or 0x80).toInt())
+            rest = rest ushr 7
+        }
+        out.writeByte(rest.toInt())
+    }
+
+    private fun readVarInt(data: DataInputStream): Int = readVarLong(data).toInt()
+
+    private fun readVarLong(data: DataInputStream): Long {
+        var result = 0L
+        var shift = 0
+        while (shift < 64) {
+            val byte = data.read()
+            if (byte < 0) throw EOFException("Truncated trace")
+            result = result or ((byte and 0x7F).toLong() shl shift)
+            if (byte and 0x80 == 0) return (result ushr 1) xor -(result and 1)
+            shift += 7
+        }
+        throw IOException("Malformed varint")
+    }
+
+    private fun writeString(out: DataOutputStream, value: String) {
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        writeVarInt(out, bytes.size)
+        out.write(bytes)
+    }
+
+    private fun readString(data: DataInputStream): String {
+        val bytes = ByteArray(readVarInt(data))
+        data.readFully(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+}
@@ -0,0 +1,48 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.CommandTrace
+import com.sincpro.printer.domain.ITraceSink
+import com.sincpro.printer.domain.ReplayResult
+import com.sincpro.printer.domain.ReplaySpeed
+import com.sincpro.printer.domain.TraceEvent
+import kotlinx.coroutines.delay
+import kotlin.time.Duration.Companion.nanoseconds
+
+/**
+ * INFRASTRUCTURE - Pushes a recorded [CommandTrace] into any [ITraceSink]
+ *
+ * [ReplaySpeed.ORIGINAL] waits so each event leaves at its recorded offset
+ * (never earlier; a slow sink only adds delay). [ReplaySpeed.MAXIMUM] sends
+ * back to back, which measures the sink on its own.
+ */
+class TraceReplayer(private val trace: CommandTrace) {
+
+    suspend fun replay(sink: ITraceSink, speed: ReplaySpeed = ReplaySpeed.MAXIMUM): ReplayResult {
+        var jobs = 0
+        var commands = 0
+        var payloadBytes = 0L
+        val start = System.nanoTime()
+        try {
+            for (event in trace.events) {
+                if (speed == ReplaySpeed.ORIGINAL) {
+                    val wait = event.offsetNanos - (System.nanoTime() - start)
+                    if (wait > 0) delay(wait.nanoseconds)
+                }
+                when (event) {
+                    is TraceEvent.Command -> {
+                        sink.write(event.jobId, event.command)
+                        payloadBytes += SlcsEncoder.encodedSize(listOf(event.command))
+                        commands++
+                    }
+                    is TraceEvent.Flush -> {
+                        sink.flush(event.jobId)
+                        jobs++
+                    }
+                }
+            }
+        } finally {
+            sink.close()
+        }
+        return ReplayResult(jobs, commands, payloadBytes, (System.nanoTime() - start) / 1_000_000.0)
+    }
+}
@@ -0,0 +1,81 @@
+package com.sincpro.printer.infrastructure
+
+import com.sincpro.printer.domain.ConnectionConfig
+import com.sincpro.printer.domain.MetricsSnapshot
+import com.sincpro.printer.domain.PrintPhase
+import com.sincpro.printer.domain.TransportStats
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * INFRASTRUCTURE - Remembers how well each transport address performs
+ *
+ * Keyed like [com.sincpro.printer.domain.IPrintMetrics.activePrinterId] (address, or the
+ * transport name for USB) so throughput comes straight from the print metrics. [rank]
+ * orders connect candidates by the expected time to connect and send a typical job;
+ * addresses never tried keep the caller's order, after the known ones.
+ */
+class TransportPreferences {
+
+    companion object {
+        private const val SMOOTHING = 0.3
+
+        /** Typical receipt size used to weigh throughput against connect latency */
+        private const val REFERENCE_JOB_BYTES = 8_000.0
+
+        fun keyOf(config: ConnectionConfig): String = config.address.ifEmpty { config.type.name.lowercase() }
+    }
+
+    private val stats = ConcurrentHashMap<String, TransportStats>()
+
+    fun recordConnect(config: ConnectionConfig, latencyMs: Double) {
+        stats.compute(keyOf(config)) { key, current ->
+            if (current == null || current.attempts == current.failures) {
+                TransportStats(key, config.type, latencyMs, (current?.attempts ?: 0) + 1, current?.failures ?: 0, current?.bytesPerSecond)
+            } else {
+                current.copy(
+                    connectMs = current.connectMs + SMOOTHING * (latencyMs - current.connectMs),
+                    attempts = current.attempts + 1
+                )
+            }
+        }
+    }
+
+    /** Restore stats remembered from an earlier session; live measurements win */
+    fun seed(remembered: TransportStats) {
+        stats.putIfAbsent(remembered.address, remembered)
+    }
+
+    fun recordFailure(config: ConnectionConfig) {
+        stats.compute(keyOf(config)) { key, current ->
+            current?.copy(attempts = current.attempts + 1, failures = current.failures + 1)
+                ?: TransportStats(key, config.type, config.timeoutMs.toDouble(), 1, 1)
+        }
+    }
+
+    /**
+     * Refresh throughput from the bytes and link time (RENDER + TRANSACTION) seen per printer.
+     */
+    fun updateThroughput(snapshot: MetricsSnapshot) {
+        snapshot.printers.forEach { printer ->
+            val linkMs = listOf(PrintPhase.RENDER, PrintPhase.TRANSACTION).sumOf { printer.phases[it]?.totalMs ?: 0.0 }
+            if (printer.payloadBytes == 0L || linkMs <= 0.0) return@forEach
+            stats.computeIfPresent(printer.printerId) { _, current ->
+                current.copy(bytesPerSecond = printer.payloadBytes * 1000.0 / linkMs)
+            }
+        }
+    }
+
+    fun rank(candidates: List<ConnectionConfig>): List<ConnectionConfig> =
+        candidates.sortedBy { candidate -> score(candidate) }
+
+    fun get(config: ConnectionConfig): TransportStats? = stats[keyOf(config)]
+
+    fun snapshot(): List<TransportStats> = stats.values.toList()
+
+    private fun score(config: ConnectionConfig): Double {
+        val current = stats[keyOf(config)] ?: return Double.MAX_VALUE
+        val failureRate = current.failures.toDouble() / current.attempts
+        val transferMs = current.bytesPerSecond?.let { REFERENCE_JOB_BYTES * 1000.0 / it } ?: 0.0
+        return current.connectMs + transferMs + failureRate * config.timeoutMs
+    }
+}
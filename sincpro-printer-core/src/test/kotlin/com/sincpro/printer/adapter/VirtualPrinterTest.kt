@@ -0,0 +1,146 @@
+package com.sincpro.printer.adapter
+
+import com.sincpro.printer.domain.ConnectionConfig
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobEvent
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintJobPhase
+import com.sincpro.printer.domain.PrinterConfig
+import com.sincpro.printer.domain.PrinterFaultException
+import com.sincpro.printer.domain.Speed
+import com.sincpro.printer.infrastructure.PrintMetricsRecorder
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertIs
+import kotlin.test.assertTrue
+
+class VirtualPrinterTest {
+
+    private val label = MediaConfig.label(50, 30)
+    private val hello = listOf(PrintElement.Text("hello", 0, 0))
+
+    private fun TestScope.virtualPrinter(config: VirtualPrinterConfig = VirtualPrinterConfig(rasterize = false)) =
+        VirtualPrinter(
+            PrintMetricsRecorder(),
+            config,
+            scope = backgroundScope,
+            nanoClock = { testScheduler.currentTime * 1_000_000 }
+        )
+
+    // ==================== Tiempos ====================
+
+    @Test
+    fun transmitTimeFollowsLinkSpeed() = runTest {
+        val printer = virtualPrinter(VirtualPrinterConfig(linkBytesPerSecond = 10_000, rasterize = false))
+        printer.connect(ConnectionConfig.bluetooth("virtual"))
+
+        assertTrue(printer.print(hello, label).isSuccess)
+
+        val stats = printer.stats()
+        assertEquals(stats.bytesSent * 1_000.0 / 10_000, stats.transmitMs, 0.001)
+    }
+
+    @Test
+    fun headTimeFollowsSpeedIps() = runTest {
+        val printer = virtualPrinter()
+        printer.connect(ConnectionConfig.bluetooth("virtual"))
+
+        printer.configure(PrinterConfig(speed = Speed.SLOW))
+        printer.print(hello, label)
+        advanceTimeBy(60_000)
+        val slow = printer.stats()
+        // 25 décimas de pulgada por segundo a 203 dpi
+        assertEquals(slow.dotsPrinted * 1_000.0 / (25 * 203 / 10), slow.printMs, 0.001)
+
+        printer.resetStats()
+        printer.configure(PrinterConfig(speed = Speed.MEDIUM))
+        printer.print(hello, label)
+        advanceTimeBy(60_000)
+        val medium = printer.stats()
+        assertEquals(slow.dotsPrinted, medium.dotsPrinted)
+        assertEquals(2.0, slow.printMs / medium.printMs, 0.01)
+    }
+
+    @Test
+    fun jobEventsFollowVirtualTime() = runTest {
+        val printer = virtualPrinter(VirtualPrinterConfig(linkBytesPerSecond = 10_000, rasterize = false))
+        val events = mutableListOf<PrintJobEvent>()
+        backgroundScope.launch(UnconfinedTestDispatcher(testScheduler)) { printer.jobEvents.collect { events += it } }
+        printer.connect(ConnectionConfig.bluetooth("virtual"))
+
+        printer.print(hello, label, options = PrintJobOptions(jobId = "job"))
+        advanceTimeBy(60_000)
+
+        val stats = printer.stats()
+        val complete = events.single { it.phase == PrintJobPhase.OUTPUT_COMPLETE }
+        assertEquals(stats.transmitMs + stats.printMs, complete.elapsedMs.toDouble(), 2.0)
+    }
+
+    // ==================== Fallas ====================
+
+    @Test
+    fun paperOutShowsInStatusAndFailsJobs() = runTest {
+        val printer = virtualPrinter()
+        printer.connect(ConnectionConfig.bluetooth("virtual"))
+
+        printer.injectFault(VirtualFault.PAPER_OUT)
+
+        val status = printer.getStatus().getOrThrow()
+        assertTrue(status.hasError)
+        assertFalse(status.hasPaper)
+        assertEquals(VirtualFault.PAPER_OUT.message, printer.print(hello, label).exceptionOrNull()?.message)
+
+        printer.clearFaults()
+        assertTrue(printer.getStatus().getOrThrow().isReady)
+        assertTrue(printer.print(hello, label).isSuccess)
+    }
+
+    @Test
+    fun coverOpenAfterSendIsReportedAsPrinterFault() = runTest {
+        val virtual = virtualPrinter()
+        val printer = VerifyingPrinter(virtual, scope = backgroundScope)
+        val events = mutableListOf<PrintJobEvent>()
+        backgroundScope.launch(UnconfinedTestDispatcher(testScheduler)) { printer.jobEvents.collect { events += it } }
+        virtual.connect(ConnectionConfig.bluetooth("virtual"))
+
+        // Un trabajo largo en el cabezal: el siguiente queda en el buffer de la impresora
+        printer.print(hello, label, copies = 5)
+        assertTrue(printer.print(hello, label, options = PrintJobOptions(jobId = "job", verify = true)).isSuccess)
+        virtual.injectFault(VirtualFault.COVER_OPEN)
+        advanceTimeBy(60_000)
+
+        val failed = events.single { it.jobId == "job" && it.phase == PrintJobPhase.FAILED }
+        val fault = assertIs<PrinterFaultException>(failed.cause)
+        assertTrue(fault.status.isCoverOpen)
+        assertTrue(virtual.reprints.commands("job", 1) != null)
+    }
+
+    // ==================== Raster ====================
+
+    @Test
+    fun rasterizesTextCells() = runTest {
+        val printer = virtualPrinter(VirtualPrinterConfig())
+        printer.connect(ConnectionConfig.bluetooth("virtual"))
+
+        printer.print(listOf(PrintElement.Text("AB C", 0, 0), PrintElement.Text("D", 100, 120)), label)
+
+        val page = printer.pages().single()
+        assertEquals(label.widthDots, page.widthDots)
+        assertEquals(label.heightDots, page.heightDots)
+        // Celda MEDIUM de 19×30 puntos, 1 punto de margen a cada lado
+        assertTrue(page.isBlack(9, 15))
+        assertTrue(page.isBlack(19 + 9, 15))
+        assertFalse(page.isBlack(2 * 19 + 9, 15))
+        assertTrue(page.isBlack(3 * 19 + 9, 15))
+        assertFalse(page.isBlack(0, 15))
+        assertTrue(page.isBlack(100 + 9, 120 + 15))
+        assertFalse(page.isBlack(9, 120 + 15))
+    }
+}
@@ -0,0 +1,50 @@
+package com.sincpro.printer.domain
+
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class PrintElementTest {
+
+    private val segmentDots = 800
+
+    @Test
+    fun denseReceiptBandsStayWithinSegment() {
+        // Líneas cada 24 puntos con celdas de 30: ningún corte limpio
+        val receipt = (0 until 1000).map { PrintElement.Text("line $it", 0, it * 24) }
+
+        val bands = receipt.bands(segmentDots)
+
+        assertTrue(bands.size > 1)
+        bands.forEach { band ->
+            assertTrue(band.heightDots <= segmentDots, "band of ${band.heightDots} dots")
+            band.elements.forEach { assertTrue(it.bottom() <= band.heightDots) }
+        }
+        assertEquals(receipt.map { it.content }, bands.flatMap { band -> band.elements.map { (it as PrintElement.Text).content } })
+    }
+
+    @Test
+    fun spacedReceiptCutsCleanly() {
+        val receipt = (0 until 100).map { PrintElement.Text("line $it", 0, it * 30) }
+
+        val bands = receipt.bands(segmentDots)
+
+        assertTrue(bands.all { it.heightDots <= segmentDots })
+        // Cortes limpios: las bandas seguidas miden lo mismo que el recibo
+        assertEquals(receipt.contentHeight(), bands.sumOf { it.heightDots })
+    }
+
+    @Test
+    fun prefersAnEarlierCleanBreakOverAForcedCut() {
+        val header = listOf(PrintElement.Text("header", 0, 0))
+        val dense = (0 until 40).map { PrintElement.Text("line $it", 0, 40 + it * 24) }
+
+        val bands = (header + dense).bands(segmentDots)
+
+        assertEquals(40, bands[0].heightDots)
+        assertEquals(listOf("header"), bands[0].elements.map { (it as PrintElement.Text).content })
+        assertTrue(bands.all { it.heightDots <= segmentDots })
+    }
+
+    private fun PrintElement.bottom(): Int = (this as PrintElement.Text).y + 30
+}
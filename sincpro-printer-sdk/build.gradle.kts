@@ -30,6 +30,8 @@ android {
     sourceSets {
         getByName("main") {
             jniLibs.srcDirs("src/main/jniLibs")
+            // Núcleo JVM (dominio, layout, raster, encoding) compilado dentro del AAR
+            java.srcDir("../sincpro-printer-core/src/main/kotlin")
         }
     }
 }
@@ -7,6 +7,8 @@ pluginManagement {
     plugins {
         id("com.android.library") version "8.2.0"
         id("org.jetbrains.kotlin.android") version "1.9.22"
+        id("org.jetbrains.kotlin.jvm") version "1.9.22"
+        id("me.champeau.jmh") version "0.7.2"
     }
 }
 
@@ -19,3 +21,11 @@ dependencyResolutionManagement {
 }
 
 rootProject.name = "sincpro-printer-sdk"
+
+// Núcleo JVM puro: se compila dentro del AAR y se puede medir con JMH fuera del dispositivo
+include(":core")
+project(":core").projectDir = file("../sincpro-printer-core")
+
+// Soporte de pruebas (JVM puro): emulador TCP de impresora
+include(":testkit")
+project(":testkit").projectDir = file("../sincpro-printer-testkit")
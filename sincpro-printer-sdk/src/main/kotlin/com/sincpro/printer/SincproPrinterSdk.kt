@@ -2,21 +2,56 @@ package com.sincpro.printer
 
 import android.content.Context
 import com.sincpro.printer.adapter.BixolonPrinterAdapter
+import com.sincpro.printer.adapter.IdempotentPrinter
+import com.sincpro.printer.adapter.SupervisedPrinter
+import com.sincpro.printer.adapter.ThermalPrinter
+import com.sincpro.printer.adapter.VerifyingPrinter
 import com.sincpro.printer.domain.IBluetooth
+import com.sincpro.printer.domain.IPrintMetrics
+import com.sincpro.printer.domain.IPrinterProfileStore
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.ReconnectPolicy
 import com.sincpro.printer.infrastructure.AndroidBluetoothProvider
+import com.sincpro.printer.infrastructure.CommandRecorder
+import com.sincpro.printer.infrastructure.FilePrinterProfileStore
+import com.sincpro.printer.infrastructure.ImportCheckpoints
+import com.sincpro.printer.infrastructure.PrintMetricsRecorder
+import com.sincpro.printer.infrastructure.ReprintCache
+import com.sincpro.printer.infrastructure.TransportPreferences
 import com.sincpro.printer.service.bixolon.BixolonConnectivityService
+import com.sincpro.printer.service.bixolon.BixolonImportService
 import com.sincpro.printer.service.bixolon.BixolonPrintService
+import java.io.File
 
-class SincproPrinterSdk(context: Context) {
+class SincproPrinterSdk(
+    context: Context,
+    reconnectPolicy: ReconnectPolicy = ReconnectPolicy.DEFAULT
+) {
 
     private val bluetoothProvider: IBluetooth = AndroidBluetoothProvider(context)
 
-    val bixolon = Bixolon(context, bluetoothProvider)
+    val bixolon = Bixolon(context, bluetoothProvider, reconnectPolicy)
 
-    class Bixolon(context: Context, bluetooth: IBluetooth) {
-        private val adapter = BixolonPrinterAdapter(context)
+    class Bixolon(context: Context, bluetooth: IBluetooth, reconnectPolicy: ReconnectPolicy) {
+        val metrics: IPrintMetrics = PrintMetricsRecorder()
+        val recorder = CommandRecorder()
+        val transports = TransportPreferences()
+        val profiles: IPrinterProfileStore = FilePrinterProfileStore(File(context.filesDir, "sincpro-printer-profiles"))
+        val reprints = ReprintCache()
 
-        val connectivity = BixolonConnectivityService(adapter, bluetooth)
-        val print = BixolonPrintService(adapter)
+        private val adapter = BixolonPrinterAdapter(context, metrics, recorder, transports, profiles, reprints)
+
+        // Ritmo según la temperatura del cabezal, keep-alive y reconexión automática por encima
+        // (así al reconectar se reaplica lo que pidió la app, no un paso térmico), verificación
+        // tras el envío; por fuera, reintentos sin duplicados
+        val thermal = ThermalPrinter(adapter)
+        private val printer = IdempotentPrinter(VerifyingPrinter(SupervisedPrinter(thermal, reconnectPolicy)))
+
+        val connectivity = BixolonConnectivityService(printer, bluetooth)
+        val print = BixolonPrintService(printer, metrics, reprints)
+        val imports = BixolonImportService(context, print, ImportCheckpoints(File(context.filesDir, "sincpro-printer-imports")))
+
+        /** Id of the job a print call with [options] stands for; a deduplicated retry reports the original */
+        fun jobIdFor(options: PrintJobOptions): String = printer.jobIdFor(options)
     }
 }
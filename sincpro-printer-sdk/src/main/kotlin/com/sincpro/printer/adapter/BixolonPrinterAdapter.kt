@@ -2,125 +2,386 @@ package com.sincpro.printer.adapter
 
 import android.content.Context
 import android.os.Handler
-import android.os.Looper
+import android.os.HandlerThread
 import android.os.Message
 import com.bixolon.labelprinter.BixolonLabelPrinter
 import com.sincpro.printer.domain.Alignment
+import com.sincpro.printer.domain.BARCODE_WIDE_BAR_DOTS
 import com.sincpro.printer.domain.BarcodeType
 import com.sincpro.printer.domain.ConnectionConfig
 import com.sincpro.printer.domain.ConnectionState
 import com.sincpro.printer.domain.ConnectionType
+import com.sincpro.printer.domain.DeliveryUncertainException
+import com.sincpro.printer.domain.CutterConfig
 import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.IPrintMetrics
 import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.IPrinterProfileStore
+import com.sincpro.printer.domain.LabelTemplate
 import com.sincpro.printer.domain.MediaConfig
 import com.sincpro.printer.domain.MediaType
+import com.sincpro.printer.domain.MonoImage
 import com.sincpro.printer.domain.Orientation
+import com.sincpro.printer.domain.PrintDeadlineException
 import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobEvent
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintJobPhase
+import com.sincpro.printer.domain.PrintPhase
+import com.sincpro.printer.domain.PrinterCommand
 import com.sincpro.printer.domain.PrinterConfig
 import com.sincpro.printer.domain.PrinterInfo
+import com.sincpro.printer.domain.PrinterProfile
 import com.sincpro.printer.domain.PrinterStatus
-import com.sincpro.printer.domain.TextStyle
+import com.sincpro.printer.domain.Speed
+import com.sincpro.printer.domain.bands
+import com.sincpro.printer.domain.contentHeight
+import com.sincpro.printer.domain.time
+import com.sincpro.printer.infrastructure.CommandRecorder
+import com.sincpro.printer.infrastructure.MediaSession
+import com.sincpro.printer.infrastructure.ReprintCache
+import com.sincpro.printer.infrastructure.StatusPoller
+import com.sincpro.printer.infrastructure.TransportPreferences
+import com.sincpro.printer.infrastructure.toBitmap
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.sync.Mutex
-import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.job
+import kotlinx.coroutines.joinAll
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
-
-class BixolonPrinterAdapter(private val context: Context) : IPrinter {
-
+import kotlinx.coroutines.withTimeoutOrNull
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import kotlin.coroutines.coroutineContext
+
+class BixolonPrinterAdapter(
+    private val context: Context,
+    private val metrics: IPrintMetrics,
+    private val recorder: CommandRecorder,
+    private val transports: TransportPreferences,
+    private val profiles: IPrinterProfileStore,
+    private val reprints: ReprintCache
+) : IPrinter {
+
+    @Volatile
     private var printer: BixolonLabelPrinter? = null
-    private var connectionState = ConnectionState.DISCONNECTED
+    private val _connectionState = MutableStateFlow(ConnectionState.DISCONNECTED)
+    override val connectionState: StateFlow<ConnectionState> = _connectionState.asStateFlow()
     private var currentDpi: Int = 203
-    private val printMutex = Mutex()
-
-    private val handler = object : Handler(Looper.getMainLooper()) {
-        override fun handleMessage(msg: Message) {
-            when (msg.what) {
-                BixolonLabelPrinter.MESSAGE_STATE_CHANGE -> {
-                    connectionState = when (msg.arg1) {
-                        BixolonLabelPrinter.STATE_CONNECTED -> ConnectionState.CONNECTED
-                        BixolonLabelPrinter.STATE_CONNECTING -> ConnectionState.CONNECTING
-                        else -> ConnectionState.DISCONNECTED
-                    }
-                }
-            }
-        }
-    }
+
+    // Enlace activo y lo que se recuerda de esa impresora (solo en el hilo de la impresora)
+    private var activeLink: ConnectionConfig? = null
+    private var profile: PrinterProfile? = null
+
+    // Configuración que la impresora tiene aplicada; null = desconocida
+    private var effectiveConfig: PrinterConfig? = null
+
+    // Velocidad puesta en la impresora: con autoSpeed cambia por trabajo; null = desconocida
+    private var printerSpeed: Speed? = null
+
+    private val mediaSession = MediaSession()
+
+    // Un hilo propio por impresora: BixolonLabelPrinter no es thread-safe y cada
+    // llamada (impresión, estado, configuración) se ejecuta completa y en orden de llegada
+    private val printerDispatcher = Executors.newSingleThreadExecutor { task ->
+        Thread(task, "sincpro-printer").apply { isDaemon = true }
+    }.asCoroutineDispatcher()
+
+    private val _jobEvents = MutableSharedFlow<PrintJobEvent>(
+        extraBufferCapacity = JOB_EVENT_BUFFER,
+        onBufferOverflow = BufferOverflow.DROP_OLDEST
+    )
+    override val jobEvents: SharedFlow<PrintJobEvent> = _jobEvents.asSharedFlow()
+
+    // Trabajos enviados que esperan PROCESS_OUTPUT_COMPLETE (FIFO, print está serializado)
+    private val awaitingOutput = ConcurrentLinkedQueue<TrackedJob>()
+
+    // Callbacks del fabricante en un hilo propio, fuera del hilo de UI
+    private val callbackThread = HandlerThread("sincpro-printer-callbacks").apply { start() }
+
+    // Intentos de connectAny: bloquean en la librería, fuera del hilo de la impresora
+    private val raceScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    // Vigilantes de trabajos: el hilo de la impresora puede estar bloqueado en la librería
+    private val watchdogScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+    // Una sola lectura de estado en segundo plano para todos los que escuchan statusFlow
+    private val statusPoller = StatusPoller(
+        read = ::getStatus,
+        connectionState = connectionState,
+        activity = jobEvents,
+        scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    )
 
     // ==================== Conexión ====================
 
-    override suspend fun connect(config: ConnectionConfig): Result<Unit> = withContext(Dispatchers.IO) {
+    override suspend fun connect(config: ConnectionConfig): Result<Unit> = withContext(printerDispatcher) {
         try {
-            if (printer == null) {
-                printer = BixolonLabelPrinter(context, handler, Looper.getMainLooper())
+            val p = printer ?: newPrinter().also { printer = it }
+            profiles.load(TransportPreferences.keyOf(config))?.transport?.let(transports::seed)
+            _connectionState.value = ConnectionState.CONNECTING
+            val start = System.nanoTime()
+            val result = openLink(p, config)
+            if (result.isSuccess) {
+                transports.recordConnect(config, (System.nanoTime() - start) / 1_000_000.0)
+                onConnected(config)
+            } else {
+                transports.recordFailure(config)
+                _connectionState.value = ConnectionState.ERROR
             }
-            connectionState = ConnectionState.CONNECTING
-            val p = printer!!
-            val result = when (config.type) {
-                ConnectionType.BLUETOOTH -> p.connect(config.address)
-                ConnectionType.WIFI -> p.connect(config.address, config.port, config.timeoutMs.toInt())
-                ConnectionType.USB -> p.connect()
+            result
+        } catch (e: Exception) {
+            transports.recordFailure(config)
+            _connectionState.value = ConnectionState.ERROR
+            Result.failure(e)
+        }
+    }
+
+    override suspend fun connectAny(
+        candidates: List<ConnectionConfig>,
+        staggerMs: Long
+    ): Result<ConnectionConfig> {
+        if (candidates.isEmpty()) return Result.failure(IllegalArgumentException("No connection candidates"))
+        if (candidates.size == 1) return connect(candidates[0]).map { candidates[0] }
+
+        candidates.forEach { candidate ->
+            profiles.load(TransportPreferences.keyOf(candidate))?.transport?.let(transports::seed)
+        }
+        transports.updateThroughput(metrics.snapshot())
+        val ordered = transports.rank(candidates)
+        withContext(printerDispatcher) {
+            // Soltar la instancia anterior: sus mensajes tardíos (DISCONNECTED) ya no cuentan
+            saveProfile()
+            runCatching { printer?.disconnect() }
+            printer = null
+            activeLink = null
+            mediaSession.invalidate()
+            failAwaitingOutput("Disconnected before output complete")
+            _connectionState.value = ConnectionState.CONNECTING
+        }
+
+        val winner = CompletableDeferred<Pair<ConnectionConfig, BixolonLabelPrinter>>()
+        val started = List(ordered.size) { CompletableDeferred<Unit>() }
+        val failed = List(ordered.size) { CompletableDeferred<Unit>() }
+        val attempts = ordered.mapIndexed { index, config ->
+            raceScope.launch {
+                if (index > 0) {
+                    // Escalonado: arranca tras staggerMs, o antes si el anterior ya falló
+                    started[index - 1].await()
+                    withTimeoutOrNull(staggerMs) { failed[index - 1].await() }
+                }
+                started[index].complete(Unit)
+                if (winner.isCompleted) return@launch
+
+                val instance = newPrinter()
+                val start = System.nanoTime()
+                val linked = runCatching { openLink(instance, config).isSuccess }.getOrDefault(false)
+                if (!linked) {
+                    transports.recordFailure(config)
+                    failed[index].complete(Unit)
+                    return@launch
+                }
+                transports.recordConnect(config, (System.nanoTime() - start) / 1_000_000.0)
+                // Conectó tarde: ya hay ganador
+                if (!winner.complete(config to instance)) runCatching { instance.disconnect() }
             }
-            if (result != null && !result.contains("fail", ignoreCase = true)) {
-                connectionState = ConnectionState.CONNECTED
-                Result.success(Unit)
-            } else {
-                connectionState = ConnectionState.ERROR
-                Result.failure(Exception("Connection failed: $result"))
+        }
+        raceScope.launch {
+            attempts.joinAll()
+            winner.completeExceptionally(Exception("Connection failed on all ${ordered.size} candidates"))
+        }
+
+        return try {
+            val (config, instance) = winner.await()
+            // Los intentos en espera se descartan; los bloqueados en connect cierran su enlace al volver
+            attempts.forEach { it.cancel() }
+            withContext(printerDispatcher) {
+                printer = instance
+                onConnected(config)
             }
+            Result.success(config)
+        } catch (e: CancellationException) {
+            // Nadie espera ya al ganador: cerrar el que conecte tarde en vez de dejarlo abierto
+            attempts.forEach { it.cancel() }
+            raceScope.launch { runCatching { winner.await().second.disconnect() } }
+            _connectionState.value = ConnectionState.DISCONNECTED
+            throw e
         } catch (e: Exception) {
-            connectionState = ConnectionState.ERROR
+            _connectionState.value = ConnectionState.ERROR
             Result.failure(e)
         }
     }
 
-    override suspend fun disconnect(): Result<Unit> = withContext(Dispatchers.IO) {
+    /**
+     * A vendor instance whose callbacks only count while it is the active [printer].
+     */
+    private fun newPrinter(): BixolonLabelPrinter {
+        lateinit var instance: BixolonLabelPrinter
+        val handler = object : Handler(callbackThread.looper) {
+            override fun handleMessage(msg: Message) {
+                if (instance === printer) onVendorMessage(msg)
+            }
+        }
+        instance = BixolonLabelPrinter(context, handler, callbackThread.looper)
+        return instance
+    }
+
+    private fun openLink(p: BixolonLabelPrinter, config: ConnectionConfig): Result<Unit> {
+        val result = when (config.type) {
+            ConnectionType.BLUETOOTH -> p.connect(config.address)
+            ConnectionType.WIFI -> p.connect(config.address, config.port, config.timeoutMs.toInt())
+            ConnectionType.USB -> p.connect()
+        }
+        return if (result != null && !result.contains("fail", ignoreCase = true)) {
+            Result.success(Unit)
+        } else {
+            Result.failure(Exception("Connection failed: $result"))
+        }
+    }
+
+    private fun onConnected(config: ConnectionConfig) {
+        mediaSession.invalidate()
+        val key = TransportPreferences.keyOf(config)
+        activeLink = config
+        profile = profiles.load(key) ?: PrinterProfile(key)
+        profile?.info?.let { currentDpi = it.dpi }
+        effectiveConfig = profile?.config
+        printerSpeed = null
+        saveProfile()
+        _connectionState.value = ConnectionState.CONNECTED
+        metrics.activePrinterId = key
+    }
+
+    /**
+     * Persist the active profile with [update] applied and the latest transport stats.
+     */
+    private fun saveProfile(update: (PrinterProfile) -> PrinterProfile = { it }) {
+        val current = profile ?: return
+        val link = activeLink ?: return
+        transports.updateThroughput(metrics.snapshot())
+        val updated = update(current).copy(transport = transports.get(link) ?: current.transport)
+        profile = updated
+        profiles.save(updated)
+    }
+
+    private fun onVendorMessage(msg: Message) {
+        when (msg.what) {
+            BixolonLabelPrinter.MESSAGE_STATE_CHANGE -> {
+                val state = when (msg.arg1) {
+                    BixolonLabelPrinter.STATE_CONNECTED -> ConnectionState.CONNECTED
+                    BixolonLabelPrinter.STATE_CONNECTING -> ConnectionState.CONNECTING
+                    else -> ConnectionState.DISCONNECTED
+                }
+                _connectionState.value = state
+                if (state == ConnectionState.DISCONNECTED) {
+                    mediaSession.invalidate()
+                    failAwaitingOutput("Disconnected before output complete")
+                }
+            }
+            BixolonLabelPrinter.MESSAGE_OUTPUT_COMPLETE -> onOutputComplete()
+            BixolonLabelPrinter.MESSAGE_READ -> when (msg.arg1) {
+                BixolonLabelPrinter.PROCESS_OUTPUT_COMPLETE -> onOutputComplete()
+                // Respuesta asíncrona de estado: sirve igual que una lectura del poller
+                BixolonLabelPrinter.PROCESS_GET_STATUS ->
+                    (msg.obj as? ByteArray)?.takeIf { it.isNotEmpty() }?.let { statusPoller.offer(decodeStatus(it)) }
+            }
+        }
+    }
+
+    override suspend fun disconnect(): Result<Unit> = withContext(printerDispatcher) {
         try {
+            saveProfile()
             printer?.disconnect()
-            connectionState = ConnectionState.DISCONNECTED
+            _connectionState.value = ConnectionState.DISCONNECTED
+            mediaSession.invalidate()
+            failAwaitingOutput("Disconnected before output complete")
             Result.success(Unit)
         } catch (e: Exception) {
             Result.failure(e)
         }
     }
 
-    override fun isConnected() = connectionState == ConnectionState.CONNECTED
+    override fun isConnected() = _connectionState.value == ConnectionState.CONNECTED
 
     // ==================== Estado ====================
 
-    override suspend fun getStatus(): Result<PrinterStatus> = withContext(Dispatchers.IO) {
+    override suspend fun getStatus(): Result<PrinterStatus> = withContext(printerDispatcher) {
         try {
             val p = printer ?: return@withContext Result.success(PrinterStatus.disconnected())
 
-            val statusBytes = p.getStatus(false)
+            // true: pedir también el 2º byte (estado del buffer de imagen)
+            val statusBytes = p.getStatus(true)
             if (statusBytes == null || statusBytes.isEmpty()) {
                 return@withContext Result.success(PrinterStatus.error("Failed to read status"))
             }
-
-            val byte1 = statusBytes.getOrNull(0)?.toInt() ?: 0
-
-            val paperEmpty = (byte1 and 0x80) != 0
-            val coverOpen = (byte1 and 0x40) != 0
-            val overheat = (byte1 and 0x10) != 0
-            val hasError = paperEmpty || coverOpen || overheat
-
-            Result.success(
-                PrinterStatus(
-                    connectionState = connectionState,
-                    hasPaper = !paperEmpty,
-                    isCoverOpen = coverOpen,
-                    isOverheated = overheat,
-                    hasError = hasError,
-                    errorMessage = if (hasError) buildErrorMessage(paperEmpty, coverOpen, overheat) else null
-                )
-            )
+            Result.success(decodeStatus(statusBytes).also(statusPoller::offer))
         } catch (e: Exception) {
             Result.success(PrinterStatus.error("Status read failed: ${e.message}"))
         }
     }
 
-    override suspend fun getInfo(): Result<PrinterInfo> = withContext(Dispatchers.IO) {
+    override fun statusFlow(): Flow<PrinterStatus> = statusPoller.statuses
+
+    private fun decodeStatus(statusBytes: ByteArray): PrinterStatus {
+        val byte1 = statusBytes.getOrNull(0)?.toInt() ?: 0
+        val byte2 = statusBytes.getOrNull(1)?.toInt() ?: 0
+        fun Int.has(flag: Byte) = (this and flag.toInt()) != 0
+
+        val paperEmpty = byte1.has(BixolonLabelPrinter.STATUS_1ST_BYTE_PAPER_EMPTY)
+        val coverOpen = byte1.has(BixolonLabelPrinter.STATUS_1ST_BYTE_COVER_OPEN)
+        val cutterJammed = byte1.has(BixolonLabelPrinter.STATUS_1ST_BYTE_CUTTER_JAMMED)
+        val overheat = byte1.has(BixolonLabelPrinter.STATUS_1ST_BYTE_TPH_OVERHEAT)
+        val sensingError = byte1.has(BixolonLabelPrinter.STATUS_1ST_BYTE_AUTO_SENSING_FAILURE)
+        val ribbonOut = byte1.has(BixolonLabelPrinter.STATUS_1ST_BYTE_RIBBON_END_ERROR)
+        val errors = listOfNotNull(
+            "Paper empty".takeIf { paperEmpty },
+            "Cover open".takeIf { coverOpen },
+            "Cutter jammed".takeIf { cutterJammed },
+            "Overheated".takeIf { overheat },
+            "Media sensing failed".takeIf { sensingError },
+            "Ribbon end".takeIf { ribbonOut }
+        )
+
+        return PrinterStatus(
+            connectionState = _connectionState.value,
+            hasPaper = !paperEmpty,
+            isCoverOpen = coverOpen,
+            isOverheated = overheat,
+            hasError = errors.isNotEmpty(),
+            errorMessage = errors.takeIf { it.isNotEmpty() }?.joinToString(", "),
+            isBuildingImage = byte2.has(BixolonLabelPrinter.STATUS_2ND_BYTE_BUILDING_IN_IMAGE_BUFFER),
+            isPrinting = byte2.has(BixolonLabelPrinter.STATUS_2ND_BYTE_PRINTING_IN_IMAGE_BUFFER),
+            isCutterJammed = cutterJammed,
+            hasSensingError = sensingError,
+            isRibbonOut = ribbonOut,
+            isPausedInPeeler = byte2.has(BixolonLabelPrinter.STATUS_2ND_BYTE_PAUSED_IN_PEELER_UNIT)
+        )
+    }
+
+    override suspend fun getInfo(): Result<PrinterInfo> = withContext(printerDispatcher) {
         try {
             val p = printer ?: return@withContext Result.failure(Exception("Not connected"))
+            val cached = profile?.takeIf { it.isInfoFresh(INFO_MAX_AGE_MS) }?.info
+            if (cached != null && isSamePrinter(p, cached)) {
+                currentDpi = cached.dpi
+                return@withContext Result.success(cached)
+            }
+
             val model = p.getPrinterInformation(BixolonLabelPrinter.PRINTER_INFORMATION_MODEL_NAME)
                 ?.toString(Charsets.UTF_8)?.trim() ?: "Unknown"
             val firmware = p.getPrinterInformation(BixolonLabelPrinter.PRINTER_INFORMATION_FIRMWARE_VERSION)
@@ -128,7 +389,9 @@ class BixolonPrinterAdapter(private val context: Context) : IPrinter {
             val serial = p.getPrinterInformation(BixolonLabelPrinter.PRINTER_INFORMATION_SERIAL_NUMBER)
                 ?.toString(Charsets.UTF_8)?.trim() ?: "Unknown"
             currentDpi = p.getPrinterDpi()
-            Result.success(PrinterInfo(model, firmware, serial, currentDpi))
+            val info = PrinterInfo(model, firmware, serial, currentDpi)
+            saveProfile { it.copy(info = info, infoSavedAtMs = System.currentTimeMillis()) }
+            Result.success(info)
         } catch (e: Exception) {
             Result.failure(e)
         }
@@ -136,18 +399,48 @@ class BixolonPrinterAdapter(private val context: Context) : IPrinter {
 
     override fun getDpi(): Int = currentDpi
 
+    /**
+     * A Bluetooth address is the device itself; an IP or USB port may now be another
+     * printer, so the cached serial is checked with one query instead of four.
+     */
+    private fun isSamePrinter(p: BixolonLabelPrinter, cached: PrinterInfo): Boolean {
+        if (activeLink?.type == ConnectionType.BLUETOOTH) return true
+        val serial = p.getPrinterInformation(BixolonLabelPrinter.PRINTER_INFORMATION_SERIAL_NUMBER)
+            ?.toString(Charsets.UTF_8)?.trim()
+        return serial == cached.serialNumber
+    }
+
     // ==================== Configuración ====================
 
-    override suspend fun configure(config: PrinterConfig): Result<Unit> = withContext(Dispatchers.IO) {
+    override suspend fun configure(config: PrinterConfig, force: Boolean): Result<Unit> = withContext(printerDispatcher) {
         try {
             val p = printer ?: return@withContext Result.failure(Exception("Not connected"))
-            p.setMargin(config.marginLeft, config.marginTop)
-            p.setDensity(config.density.level)
-            p.setSpeed(config.speed.ips)
-            p.setOrientation(config.orientation.toSdk())
-            p.setAutoCutter(config.autoCutter.enabled, if (config.autoCutter.fullCut) 1 else 0)
+            val known = if (force) null else effectiveConfig
+            if (known == config) return@withContext Result.success(Unit)
+
+            // Un solo lote: endTransactionPrint confirma todos los setters con un round trip
+            p.beginTransactionPrint()
+            try {
+                if (known == null || known.marginLeft != config.marginLeft || known.marginTop != config.marginTop) {
+                    p.setMargin(config.marginLeft, config.marginTop)
+                }
+                if (known?.density != config.density) p.setDensity(config.density.level)
+                if (known == null || printerSpeed != config.speed) p.setSpeed(config.speed.toSdk())
+                if (known?.orientation != config.orientation) p.setOrientation(config.orientation.toSdk())
+                if (known?.autoCutter != config.autoCutter) {
+                    p.setAutoCutter(config.autoCutter.enabled, if (config.autoCutter.fullCut) 1 else 0)
+                }
+            } finally {
+                p.endTransactionPrint()
+            }
+            effectiveConfig = config
+            printerSpeed = config.speed
+            saveProfile { it.copy(config = config) }
             Result.success(Unit)
         } catch (e: Exception) {
+            // Estado desconocido: el próximo configure envía todo
+            effectiveConfig = null
+            printerSpeed = null
             Result.failure(e)
         }
     }
@@ -157,70 +450,326 @@ class BixolonPrinterAdapter(private val context: Context) : IPrinter {
     override suspend fun print(
         elements: List<PrintElement>,
         media: MediaConfig,
-        copies: Int
-    ): Result<Unit> = printMutex.withLock {
-        withContext(Dispatchers.IO) {
-            try {
-                val p = printer ?: return@withContext Result.failure(Exception("Not connected"))
-
-                p.clearBuffer()
-                p.beginTransactionPrint()
-                p.setWidth(media.widthDots)
-
-                val contentHeight = calculateContentHeight(elements)
-                val heightWithMargin = contentHeight + 100
-                
-                when (media.type) {
-                    MediaType.CONTINUOUS -> {
-                        p.setLength(heightWithMargin, 0, BixolonLabelPrinter.MEDIA_TYPE_CONTINUOUS, 0)
-                    }
-                    MediaType.GAP -> {
-                        p.setLength(media.heightDots, media.gapDots, BixolonLabelPrinter.MEDIA_TYPE_GAP, 0)
-                    }
-                    MediaType.BLACK_MARK -> {
-                        p.setLength(media.heightDots, media.gapDots, BixolonLabelPrinter.MEDIA_TYPE_BLACK_MARK, 0)
-                    }
-                }
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        if (media.type == MediaType.CONTINUOUS && options.segmentDots > 0 && elements.contentHeight() > options.segmentDots) {
+            val bands = elements.bands(options.segmentDots)
+            val segments = (1..copies).asSequence().flatMap { PrinterCommand.compileSegments(bands, media) }
+            return submit(options, copies) { job -> transmitSegments(job, segments, bands.size) }
+        }
+        return submit(options, copies) { job -> transmit(job, sequence { yield(PrinterCommand.compile(elements, media, copies)) }) }
+    }
+
+    override suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long,
+        copies: Int,
+        options: PrintJobOptions
+    ): Result<Unit> {
+        // Una sola transacción: un viaje de ida y vuelta para toda la tirada
+        return submit(options, copies) { job ->
+            transmit(job, sequence { yield(PrinterCommand.compileLabelRun(template, startSerial, count, step, copies)) })
+        }
+    }
 
-                elements.forEach { element ->
-                    renderElement(p, element)
+    override suspend fun printCompiled(commands: List<PrinterCommand>, copies: Int, options: PrintJobOptions): Result<Unit> {
+        // Un recibo segmentado (p. ej. una reimpresión) vuelve a salir por segmentos con la cuchilla retenida
+        val segments = PrinterCommand.segments(commands)
+        if (segments.size > 1) {
+            return submit(options, copies) { job -> transmitSegments(job, segments.asSequence(), (segments.size / copies).coerceAtLeast(1)) }
+        }
+        return submit(options, copies) { job -> transmit(job, sequenceOf(commands)) }
+    }
+
+    /**
+     * Run [send] on the printer thread; what it sent is kept for reprints.
+     * Cancelling the caller, or reaching [PrintJobOptions.deadlineMs], stops the job at the
+     * next command; a vendor call that does not return is aborted by [watch].
+     */
+    private suspend fun submit(
+        options: PrintJobOptions,
+        copies: Int,
+        send: suspend (TrackedJob) -> Result<List<PrinterCommand>>
+    ): Result<Unit> {
+        val job = TrackedJob(options.jobId, System.nanoTime())
+        emitJobEvent(job, PrintJobPhase.QUEUED)
+
+        val run: suspend () -> Result<Unit> = {
+            withContext(printerDispatcher) {
+                metrics.record(PrintPhase.QUEUE, System.nanoTime() - job.queuedAtNanos)
+                job.progress()
+                val watchdog = watch(job, coroutineContext.job)
+                try {
+                    send(job).map { sent -> reprints.remember(job.id, sent, copies) }
+                } finally {
+                    watchdog.cancel()
                 }
+            }
+        }
+        val result = try {
+            if (options.deadlineMs > 0) {
+                withTimeoutOrNull(options.deadlineMs) { run() } ?: Result.failure(deadlineMissed(job, options.deadlineMs))
+            } else {
+                run()
+            }
+        } catch (e: CancellationException) {
+            emitJobEvent(job, PrintJobPhase.FAILED, "Cancelled")
+            throw e
+        }
+        return result.onFailure { e ->
+            emitJobEvent(job, PrintJobPhase.FAILED, e.message ?: e.javaClass.simpleName)
+        }
+    }
 
-                p.print(copies, 1)
-                p.endTransactionPrint()
+    private fun deadlineMissed(job: TrackedJob, deadlineMs: Long): Exception = if (job.flushing) {
+        DeliveryUncertainException("Job ${job.id} missed its $deadlineMs ms deadline while being sent")
+    } else {
+        PrintDeadlineException(job.id, deadlineMs)
+    }
 
-                Result.success(Unit)
-            } catch (e: Exception) {
-                runCatching { 
+    /**
+     * Send [batches] one transaction each, compiling the next batch only after the
+     * previous one left. [beforeBatch] runs inside each transaction, before its commands.
+     * Returns every command sent, unfiltered.
+     */
+    private suspend fun transmit(
+        job: TrackedJob,
+        batches: Sequence<List<PrinterCommand>>,
+        beforeBatch: (BixolonLabelPrinter, Int) -> Unit = { _, _ -> }
+    ): Result<List<PrinterCommand>> {
+        // Tras un aborto la instancia sigue ahí pero el enlace no: no escribir en él
+        val p = printer?.takeIf { isConnected() } ?: return Result.failure(Exception("Not connected"))
+        return try {
+            emitJobEvent(job, PrintJobPhase.SENDING)
+
+            val sent = ArrayList<PrinterCommand>()
+            val iterator = batches.iterator()
+            var index = 0
+            while (iterator.hasNext()) {
+                job.checkRunning()
+                val commands = metrics.time(PrintPhase.RENDER) {
+                    val commands = iterator.next()
+                    p.beginTransactionPrint()
+                    applyJobSpeed(p, commands)
+                    beforeBatch(p, index)
+                    mediaSession.filter(commands).forEach { command ->
+                        job.checkRunning()
+                        execute(p, command)
+                        recorder.record(job.id, command)
+                        job.progress()
+                    }
+                    commands
+                }
+                val bytes = estimatePayloadBytes(commands)
+                metrics.addPayloadBytes(bytes)
+
+                // Solo el último lote reporta la salida del trabajo
+                trackOutput(if (iterator.hasNext()) TrackedJob(job.id, job.queuedAtNanos, reportsOutput = false) else job)
+                // Desde aquí los datos pueden haber salido aunque la llamada falle
+                job.flushing = true
+                // Un lote grande tarda en salir por un enlace lento: el vigilante espera en proporción
+                job.stallLimitMs = maxOf(STALL_MS, bytes * 1000 / MIN_LINK_BYTES_PER_SECOND)
+                metrics.time(PrintPhase.TRANSACTION) {
+                    p.endTransactionPrint()
+                }
+                job.stallLimitMs = STALL_MS
+                job.progress()
+                job.checkRunning()
+                recorder.flush(job.id)
+                mediaSession.sent(commands)
+                sent.addAll(commands)
+                index++
+            }
+            job.sentAtNanos = System.nanoTime()
+            emitJobEvent(job, PrintJobPhase.SENT)
+
+            Result.success(sent)
+        } catch (e: Exception) {
+            awaitingOutput.removeAll { it.id == job.id }
+            mediaSession.invalidate()
+            printerSpeed = null
+            val aborted = job.abortReason
+            // Tras un aborto el enlace ya está cerrado; el ClearBuffer del siguiente trabajo limpia la impresora
+            if (aborted == null) {
+                runCatching {
                     printer?.endTransactionPrint()
                     printer?.clearBuffer()
                 }
-                Result.failure(e)
+            }
+            if (e is CancellationException) throw e
+            val reason = aborted?.let { "aborted, $it" } ?: e.message
+            when {
+                job.flushing -> Result.failure(DeliveryUncertainException("Job ${job.id} may have reached the printer: $reason", e))
+                aborted != null -> Result.failure(Exception("Job ${job.id} $reason", e))
+                else -> Result.failure(e)
             }
         }
     }
 
-    private fun calculateContentHeight(elements: List<PrintElement>): Int {
-        if (elements.isEmpty()) return 100
-        
-        var maxY = 0
-        elements.forEach { element ->
-            val elementBottom = when (element) {
-                is PrintElement.Text -> element.y + 30
-                is PrintElement.QR -> element.y + (element.size * 20) + 20
-                is PrintElement.Barcode -> element.y + element.height + 30
-                is PrintElement.Image -> element.y + element.bitmap.height + 10
-                is PrintElement.Space -> element.dots
+    /** Stops the job when its caller is gone or the watchdog closed the link */
+    private suspend fun TrackedJob.checkRunning() {
+        coroutineContext.ensureActive()
+        abortReason?.let { throw IllegalStateException("Link closed: $it") }
+    }
+
+    /**
+     * Watches [job] while it holds the printer thread. A blocked vendor call (a Bluetooth
+     * write nobody reads) ignores cancellation; closing the link from here is what makes it
+     * return. Aborts when [caller] is cancelled and the job made no progress for
+     * [CANCEL_GRACE_MS], or when it made none for its stall limit.
+     */
+    private fun watch(job: TrackedJob, caller: Job): Job = watchdogScope.launch {
+        while (true) {
+            delay(WATCHDOG_TICK_MS)
+            val idleMs = (System.nanoTime() - job.progressAtNanos) / 1_000_000
+            val reason = when {
+                caller.isCancelled && idleMs > CANCEL_GRACE_MS -> "cancelled while blocked in the printer link"
+                idleMs > job.stallLimitMs -> "no progress in $idleMs ms"
+                else -> continue
             }
-            if (elementBottom > maxY) maxY = elementBottom
+            abort(job, reason)
+            return@launch
+        }
+    }
+
+    /** Closes the link under a stuck job; the supervisor reconnects and later jobs go on */
+    private fun abort(job: TrackedJob, reason: String) {
+        job.abortReason = reason
+        // A propósito fuera del hilo de la impresora: ese hilo está bloqueado
+        runCatching { printer?.disconnect() }
+        _connectionState.value = ConnectionState.DISCONNECTED
+        mediaSession.invalidate()
+        failAwaitingOutput("Link closed: job ${job.id} $reason")
+    }
+
+    /**
+     * With [PrinterConfig.autoSpeed], the fastest speed [commands] allow. The setter goes
+     * in the job's own transaction and only when the speed changes: no extra round trip.
+     */
+    private fun applyJobSpeed(p: BixolonLabelPrinter, commands: List<PrinterCommand>) {
+        val config = effectiveConfig?.takeIf { it.autoSpeed } ?: return
+        val speed = config.speedFor(commands)
+        if (speed == printerSpeed) return
+        p.setSpeed(speed.toSdk())
+        printerSpeed = speed
+    }
+
+    /**
+     * A tall continuous job as back-to-back segments, [perCopy] per copy, each sent as soon
+     * as it is compiled. With a known auto cutter it is held off until the last segment of each copy, and put
+     * back if the job stops before that. Back-feed is left as the printer has it: it is not
+     * part of [PrinterConfig], so it could not be restored afterwards.
+     */
+    private suspend fun transmitSegments(
+        job: TrackedJob,
+        segments: Sequence<List<PrinterCommand>>,
+        perCopy: Int
+    ): Result<List<PrinterCommand>> {
+        val cutter = effectiveConfig?.autoCutter?.takeIf { it.enabled }
+        var completed = false
+        try {
+            return transmit(job, segments) { p, index ->
+                if (cutter == null) return@transmit
+                when (index % perCopy) {
+                    perCopy - 1 -> p.setAutoCutter(true, if (cutter.fullCut) 1 else 0)
+                    0 -> p.setAutoCutter(false, 0)
+                }
+            }.also { completed = it.isSuccess }
+        } finally {
+            if (cutter != null && !completed) restoreAutoCutter(cutter)
+        }
+    }
+
+    /** Re-enables the cutter a failed segmented job left off; if that fails too, the next configure sends everything */
+    private fun restoreAutoCutter(cutter: CutterConfig) {
+        val restored = isConnected() && runCatching {
+            printer?.setAutoCutter(true, if (cutter.fullCut) 1 else 0)
+        }.isSuccess
+        if (!restored) effectiveConfig = null
+    }
+
+    override fun beginMediaSession() = mediaSession.begin()
+
+    override fun endMediaSession() = mediaSession.end()
+
+    // ==================== Eventos de trabajo ====================
+
+    private class TrackedJob(val id: String, val queuedAtNanos: Long, val reportsOutput: Boolean = true) {
+        @Volatile
+        var sentAtNanos: Long = 0
+
+        // Escritos en el hilo de la impresora, leídos por el vigilante
+        @Volatile
+        var progressAtNanos: Long = queuedAtNanos
+
+        @Volatile
+        var stallLimitMs: Long = STALL_MS
+
+        // Ya llamó a endTransactionPrint: los datos pueden haber salido
+        @Volatile
+        var flushing = false
+
+        @Volatile
+        var abortReason: String? = null
+
+        fun progress() {
+            progressAtNanos = System.nanoTime()
+        }
+    }
+
+    private fun emitJobEvent(job: TrackedJob, phase: PrintJobPhase, errorMessage: String? = null) {
+        _jobEvents.tryEmit(
+            PrintJobEvent(
+                jobId = job.id,
+                phase = phase,
+                timestampMs = System.currentTimeMillis(),
+                elapsedMs = (System.nanoTime() - job.queuedAtNanos) / 1_000_000,
+                errorMessage = errorMessage
+            )
+        )
+    }
+
+    private fun trackOutput(job: TrackedJob) {
+        // La librería no siempre confirma; evitar crecimiento sin límite
+        while (awaitingOutput.size >= MAX_AWAITING_OUTPUT) awaitingOutput.poll()
+        awaitingOutput.add(job)
+    }
+
+    private fun onOutputComplete() {
+        val job = awaitingOutput.poll() ?: return
+        if (!job.reportsOutput) return
+        if (job.sentAtNanos != 0L) {
+            metrics.record(PrintPhase.OUTPUT, System.nanoTime() - job.sentAtNanos)
+        }
+        emitJobEvent(job, PrintJobPhase.OUTPUT_COMPLETE)
+    }
+
+    private fun failAwaitingOutput(reason: String) {
+        while (true) {
+            val job = awaitingOutput.poll() ?: return
+            if (job.reportsOutput) emitJobEvent(job, PrintJobPhase.FAILED, reason)
+        }
+    }
+
+    /**
+     * Approximate bytes put on the link: raw text/data for codes and a 1-bpp raster for images.
+     */
+    private fun estimatePayloadBytes(commands: List<PrinterCommand>): Long = commands.sumOf { command ->
+        when (command) {
+            is PrinterCommand.DrawText -> command.content.length.toLong()
+            is PrinterCommand.DrawQr -> command.data.length.toLong()
+            is PrinterCommand.DrawBarcode -> command.data.length.toLong()
+            is PrinterCommand.DrawImage -> ((command.image.width + 7) / 8).toLong() * command.image.height
+            else -> 0L
         }
-        
-        return maxY
     }
 
     // ==================== Utilidades ====================
 
-    override suspend fun feed(dots: Int): Result<Unit> = withContext(Dispatchers.IO) {
+    override suspend fun feed(dots: Int): Result<Unit> = withContext(printerDispatcher) {
         try {
             printer?.setOffset(dots)
             Result.success(Unit)
@@ -229,9 +778,10 @@ class BixolonPrinterAdapter(private val context: Context) : IPrinter {
         }
     }
 
-    override suspend fun cut(): Result<Unit> = withContext(Dispatchers.IO) {
+    override suspend fun cut(): Result<Unit> = withContext(printerDispatcher) {
         try {
             printer?.setAutoCutter(true, 1)
+            effectiveConfig = effectiveConfig?.copy(autoCutter = CutterConfig.FULL_CUT)
             printer?.print(1, 1)
             Result.success(Unit)
         } catch (e: Exception) {
@@ -241,53 +791,69 @@ class BixolonPrinterAdapter(private val context: Context) : IPrinter {
 
     // ==================== Render privado ====================
 
-    private fun renderElement(p: BixolonLabelPrinter, element: PrintElement) {
-        when (element) {
-            is PrintElement.Text -> p.drawText(
-                element.content,
-                element.x,
-                element.y,
-                element.style.fontSize.toSdk(),
+    private fun execute(p: BixolonLabelPrinter, command: PrinterCommand) {
+        when (command) {
+            is PrinterCommand.ClearBuffer -> p.clearBuffer()
+
+            is PrinterCommand.SetWidth -> p.setWidth(command.dots)
+
+            is PrinterCommand.SetLength -> p.setLength(command.dots, command.gapDots, command.type.toSdk(), 0)
+
+            is PrinterCommand.DrawText -> p.drawText(
+                command.content,
+                command.x,
+                command.y,
+                command.style.fontSize.toSdk(),
                 1, 1, 0,
                 BixolonLabelPrinter.ROTATION_NONE,
                 false,
-                element.style.bold,
-                element.style.alignment.toSdk()
+                command.style.bold,
+                command.style.alignment.toSdk()
             )
 
-            is PrintElement.QR -> p.drawQrCode(
-                element.data,
-                element.x,
-                element.y,
+            is PrinterCommand.DrawQr -> p.drawQrCode(
+                command.data,
+                command.x,
+                command.y,
                 BixolonLabelPrinter.QR_CODE_MODEL2,
                 BixolonLabelPrinter.ECC_LEVEL_15,
-                element.size,
+                command.size,
                 BixolonLabelPrinter.ROTATION_NONE
             )
 
-            is PrintElement.Barcode -> p.draw1dBarcode(
-                element.data,
-                element.x,
-                element.y,
-                element.type.toSdk(),
-                element.width,
-                6,
-                element.height,
+            is PrinterCommand.DrawBarcode -> p.draw1dBarcode(
+                command.data,
+                command.x,
+                command.y,
+                command.type.toSdk(),
+                command.width,
+                BARCODE_WIDE_BAR_DOTS,
+                command.height,
                 BixolonLabelPrinter.ROTATION_NONE,
                 BixolonLabelPrinter.HRI_BELOW_BARCODE,
                 0
             )
 
-            is PrintElement.Image -> p.drawBitmap(
-                element.bitmap,
-                element.x,
-                element.y,
-                element.bitmap.width,
+            is PrinterCommand.DrawImage -> p.drawBitmap(
+                command.image.toBitmap(),
+                command.x,
+                command.y,
+                command.image.width,
                 50,
-                true
+                // Ya reducida a 1 bpp: no volver a difuminar
+                command.image !is MonoImage
             )
 
-            is PrintElement.Space -> { }
+            is PrinterCommand.EraseArea -> p.drawBlock(
+                command.x,
+                command.y,
+                command.x + command.width,
+                command.y + command.height,
+                BixolonLabelPrinter.BLOCK_OPTION_LINE_DELETE,
+                0
+            )
+
+            is PrinterCommand.Print -> p.print(command.copies, command.sets)
         }
     }
 
@@ -317,16 +883,33 @@ class BixolonPrinterAdapter(private val context: Context) : IPrinter {
         BarcodeType.CODABAR -> BixolonLabelPrinter.BARCODE_CODABAR
     }
 
+    private fun MediaType.toSdk() = when (this) {
+        MediaType.CONTINUOUS -> BixolonLabelPrinter.MEDIA_TYPE_CONTINUOUS
+        MediaType.GAP -> BixolonLabelPrinter.MEDIA_TYPE_GAP
+        MediaType.BLACK_MARK -> BixolonLabelPrinter.MEDIA_TYPE_BLACK_MARK
+    }
+
+    private fun Speed.toSdk() = when (this) {
+        Speed.SLOW -> BixolonLabelPrinter.SPEED_25IPS
+        Speed.MEDIUM -> BixolonLabelPrinter.SPEED_50IPS
+        Speed.FAST -> BixolonLabelPrinter.SPEED_70IPS
+        Speed.EXTRA_FAST -> BixolonLabelPrinter.SPEED_80IPS
+    }
+
     private fun Orientation.toSdk() = when (this) {
         Orientation.TOP_TO_BOTTOM -> BixolonLabelPrinter.ORIENTATION_TOP_TO_BOTTOM
         Orientation.BOTTOM_TO_TOP -> BixolonLabelPrinter.ORIENTATION_BOTTOM_TO_TOP
     }
 
-    private fun buildErrorMessage(paperEmpty: Boolean, coverOpen: Boolean, overheat: Boolean): String {
-        val errors = mutableListOf<String>()
-        if (paperEmpty) errors.add("Paper empty")
-        if (coverOpen) errors.add("Cover open")
-        if (overheat) errors.add("Overheated")
-        return errors.joinToString(", ")
+    companion object {
+        private const val JOB_EVENT_BUFFER = 64
+        private const val MAX_AWAITING_OUTPUT = 32
+        private const val INFO_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000
+        private const val WATCHDOG_TICK_MS = 250L
+        private const val CANCEL_GRACE_MS = 2_000L
+        private const val STALL_MS = 30_000L
+
+        // Peor caso de un enlace Bluetooth clásico saturado
+        private const val MIN_LINK_BYTES_PER_SECOND = 2_000L
     }
 }
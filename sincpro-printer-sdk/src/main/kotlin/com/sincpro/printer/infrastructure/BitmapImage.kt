@@ -0,0 +1,35 @@
+package com.sincpro.printer.infrastructure
+
+import android.graphics.Bitmap
+import com.sincpro.printer.domain.PrintImage
+
+/**
+ * INFRASTRUCTURE - Android Bitmap as [PrintImage]
+ *
+ * Wraps without copying; [toBitmap] hands the original back to the vendor library.
+ */
+class BitmapImage(val bitmap: Bitmap) : PrintImage {
+    override val width: Int get() = bitmap.width
+    override val height: Int get() = bitmap.height
+
+    override fun readRow(y: Int, out: IntArray) {
+        bitmap.getPixels(out, 0, width, 0, y, width, 1)
+    }
+}
+
+fun Bitmap.toPrintImage(): PrintImage = BitmapImage(this)
+
+/**
+ * Bitmap for the vendor library: the wrapped one when available,
+ * otherwise an ARGB_8888 copy of the pixels.
+ */
+fun PrintImage.toBitmap(): Bitmap {
+    if (this is BitmapImage) return bitmap
+    val pixels = IntArray(width * height)
+    val row = IntArray(width)
+    for (y in 0 until height) {
+        readRow(y, row)
+        System.arraycopy(row, 0, pixels, y * width, width)
+    }
+    return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888)
+}
@@ -0,0 +1,113 @@
+package com.sincpro.printer.infrastructure
+
+import android.util.JsonReader
+import android.util.JsonToken
+import com.sincpro.printer.domain.LabelData
+import com.sincpro.printer.domain.LabelFileFormat
+import com.sincpro.printer.domain.LabelImport
+import java.io.BufferedReader
+import java.io.IOException
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.io.Reader
+
+/**
+ * INFRASTRUCTURE - Reads exported label files row by row
+ *
+ * CSV: first row is the header; quoted fields may hold delimiters, `""` and line breaks.
+ * JSON: a top-level array of flat objects; nested values are skipped, null leaves the field out.
+ *
+ * Only the current row is held in memory, whatever the file size.
+ */
+object LabelFileReader {
+
+    private const val BOM = '\uFEFF'
+
+    /** Lazy rows of [input]; the caller closes the stream once the sequence is consumed */
+    fun read(input: InputStream, import: LabelImport): Sequence<LabelData> {
+        val reader = BufferedReader(InputStreamReader(input, Charsets.UTF_8))
+        val rows = when (import.format) {
+            LabelFileFormat.CSV -> csvRows(reader, import.delimiter)
+            LabelFileFormat.JSON -> jsonRows(reader)
+        }
+        return rows.map(import::toLabelData)
+    }
+
+    // ==================== CSV ====================
+
+    private fun csvRows(reader: BufferedReader, delimiter: Char): Sequence<Map<String, String>> = sequence {
+        val records = CsvRecords(reader, delimiter)
+        val header = records.next()?.map { it.trimStart(BOM).trim() } ?: return@sequence
+        while (true) {
+            val record = records.next() ?: break
+            if (record.size == 1 && record[0].isEmpty()) continue
+            yield(header.indices.associate { header[it] to record.getOrElse(it) { "" } })
+        }
+    }
+
+    private class CsvRecords(private val reader: BufferedReader, private val delimiter: Char) {
+        private val field = StringBuilder()
+
+        fun next(): List<String>? {
+            val record = ArrayList<String>()
+            var quoted = false
+            var started = false
+            while (true) {
+                val c = reader.read()
+                if (c < 0) {
+                    if (quoted) throw IOException("Unterminated quoted field")
+                    if (!started) return null
+                    record.add(field.toString())
+                    field.setLength(0)
+                    return record
+                }
+                started = true
+                val char = c.toChar()
+                when {
+                    quoted && char == '"' -> {
+                        reader.mark(1)
+                        if (reader.read() == '"'.code) field.append('"') else {
+                            reader.reset()
+                            quoted = false
+                        }
+                    }
+                    quoted -> field.append(char)
+                    char == '"' && field.isEmpty() -> quoted = true
+                    char == delimiter -> {
+                        record.add(field.toString())
+                        field.setLength(0)
+                    }
+                    char == '\r' -> Unit
+                    char == '\n' -> {
+                        record.add(field.toString())
+                        field.setLength(0)
+                        return record
+                    }
+                    else -> field.append(char)
+                }
+            }
+        }
+    }
+
+    // ==================== JSON ====================
+
+    private fun jsonRows(reader: Reader): Sequence<Map<String, String>> = sequence {
+        val json = JsonReader(reader)
+        json.beginArray()
+        while (json.hasNext()) {
+            val row = LinkedHashMap<String, String>()
+            json.beginObject()
+            while (json.hasNext()) {
+                val name = json.nextName()
+                when (json.peek()) {
+                    JsonToken.STRING, JsonToken.NUMBER -> row[name] = json.nextString()
+                    JsonToken.BOOLEAN -> row[name] = json.nextBoolean().toString()
+                    else -> json.skipValue()
+                }
+            }
+            json.endObject()
+            yield(row)
+        }
+        json.endArray()
+    }
+}
@@ -2,11 +2,14 @@ package com.sincpro.printer.service.bixolon
 
 import com.sincpro.printer.domain.BluetoothDevice
 import com.sincpro.printer.domain.ConnectionConfig
+import com.sincpro.printer.domain.ConnectionState
 import com.sincpro.printer.domain.IBluetooth
 import com.sincpro.printer.domain.IPrinter
 import com.sincpro.printer.domain.PrinterConfig
 import com.sincpro.printer.domain.PrinterInfo
 import com.sincpro.printer.domain.PrinterStatus
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.StateFlow
 
 class BixolonConnectivityService(
     private val printer: IPrinter,
@@ -38,6 +41,19 @@ class BixolonConnectivityService(
             .onSuccess { printer.configure(config) }
     }
 
+    /**
+     * Connect through whichever candidate links first (e.g. WiFi and Bluetooth of one printer).
+     * Candidates are tried fastest-known first; returns the one that won.
+     */
+    suspend fun connectAny(
+        candidates: List<ConnectionConfig>,
+        staggerMs: Long = 250,
+        config: PrinterConfig = defaultConfig
+    ): Result<ConnectionConfig> {
+        return printer.connectAny(candidates, staggerMs)
+            .onSuccess { printer.configure(config) }
+    }
+
     fun setDefaultConfig(config: PrinterConfig) {
         defaultConfig = config
     }
@@ -45,18 +61,27 @@ class BixolonConnectivityService(
     fun getDefaultConfig(): PrinterConfig = defaultConfig
 
     /**
-     * Apply configuration to connected printer immediately
+     * Apply configuration to connected printer immediately.
+     * Only values that differ from the printer's are sent; [resync] sends them all.
      */
-    suspend fun applyConfig(config: PrinterConfig = defaultConfig): Result<Unit> {
-        return printer.configure(config)
+    suspend fun applyConfig(config: PrinterConfig = defaultConfig, resync: Boolean = false): Result<Unit> {
+        return printer.configure(config, resync)
     }
 
     suspend fun disconnect(): Result<Unit> = printer.disconnect()
 
     fun isConnected(): Boolean = printer.isConnected()
 
+    /**
+     * Current connection state; also updated by the printer's own callbacks (e.g. link drops)
+     */
+    val connectionState: StateFlow<ConnectionState> get() = printer.connectionState
+
     suspend fun getStatus(): Result<PrinterStatus> = printer.getStatus()
 
+    /** Status changes instead of polling [getStatus]; see [IPrinter.statusFlow] */
+    fun statusFlow(): Flow<PrinterStatus> = printer.statusFlow()
+
     suspend fun getInfo(): Result<PrinterInfo> = printer.getInfo()
 
     fun getDpi(): Int = printer.getDpi()
@@ -0,0 +1,99 @@
+package com.sincpro.printer.service.bixolon
+
+import android.content.Context
+import android.net.Uri
+import com.sincpro.printer.domain.LabelImport
+import com.sincpro.printer.domain.LabelImportResult
+import com.sincpro.printer.domain.LabelProgress
+import com.sincpro.printer.domain.LabelTemplate
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.infrastructure.ImportCheckpoints
+import com.sincpro.printer.infrastructure.LabelFileReader
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * Prints labels straight from CSV/JSON exports, streaming the file into
+ * [BixolonPrintService.printLabels] without parsing it on the JS side.
+ *
+ * Progress is checkpointed per import id: after a failure (or a crash) the same call
+ * resumes after the last row printed. A crash can repeat up to [CHECKPOINT_EVERY] rows;
+ * a reported failure repeats none.
+ */
+class BixolonImportService(
+    private val context: Context,
+    private val print: BixolonPrintService,
+    private val checkpoints: ImportCheckpoints
+) {
+
+    /**
+     * @param uri `content://`, `file://` or a plain path
+     * @param importId checkpoint key, the uri by default; use a new id to print a file again
+     * @param resume false ignores and clears an existing checkpoint
+     */
+    suspend fun printFromFile(
+        uri: String,
+        import: LabelImport,
+        template: LabelTemplate,
+        importId: String = uri,
+        resume: Boolean = true,
+        options: PrintJobOptions = PrintJobOptions(),
+        onProgress: suspend (LabelProgress) -> Unit = {}
+    ): Result<LabelImportResult> {
+        if (!resume) checkpoints.clear(importId)
+        val resumedFrom = checkpoints.load(importId)
+        var done = resumedFrom
+
+        val rows = flow {
+            open(uri).use { input ->
+                LabelFileReader.read(input, import).drop(resumedFrom.toInt()).forEach { emit(it) }
+            }
+        }.flowOn(Dispatchers.IO)
+
+        val result = try {
+            print.printLabels(rows, template, startIndex = resumedFrom, options = options) { progress ->
+                done = progress.index + 1
+                if (progress.printed % CHECKPOINT_EVERY == 0L) checkpoints.save(importId, done)
+                onProgress(progress)
+            }
+        } catch (e: CancellationException) {
+            checkpoints.save(importId, done)
+            throw e
+        }
+
+        return result.fold(
+            onSuccess = { printed ->
+                checkpoints.clear(importId)
+                Result.success(LabelImportResult(resumedFrom, printed))
+            },
+            onFailure = { e ->
+                checkpoints.save(importId, done)
+                Result.failure(e)
+            }
+        )
+    }
+
+    /** Rows already printed for [importId] */
+    fun checkpoint(importId: String): Long = checkpoints.load(importId)
+
+    fun clearCheckpoint(importId: String) = checkpoints.clear(importId)
+
+    private fun open(uri: String): InputStream {
+        val parsed = Uri.parse(uri)
+        return if (parsed.scheme == null) {
+            File(uri).inputStream()
+        } else {
+            context.contentResolver.openInputStream(parsed) ?: throw IOException("Cannot open $uri")
+        }
+    }
+
+    companion object {
+        /** Rows between checkpoint writes while a run goes well */
+        const val CHECKPOINT_EVERY = 25
+    }
+}
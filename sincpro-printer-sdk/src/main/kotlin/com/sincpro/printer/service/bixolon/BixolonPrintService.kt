@@ -4,24 +4,164 @@ import android.graphics.Bitmap
 import com.sincpro.printer.domain.Alignment
 import com.sincpro.printer.domain.BarcodeType
 import com.sincpro.printer.domain.FontSize
+import com.sincpro.printer.domain.IPrintMetrics
 import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.LabelData
+import com.sincpro.printer.domain.LabelProgress
+import com.sincpro.printer.domain.LabelTemplate
 import com.sincpro.printer.domain.MediaConfig
 import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobEvent
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintPhase
 import com.sincpro.printer.domain.Receipt
 import com.sincpro.printer.domain.ReceiptLine
+import com.sincpro.printer.domain.SentJob
 import com.sincpro.printer.domain.TextStyle
+import com.sincpro.printer.domain.time
 import com.sincpro.printer.infrastructure.BinaryConverter
 import com.sincpro.printer.infrastructure.PdfRenderer
+import com.sincpro.printer.infrastructure.ReprintCache
+import com.sincpro.printer.infrastructure.toPrintImage
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.buffer
+import kotlinx.coroutines.flow.collectIndexed
+import kotlinx.coroutines.flow.map
 
-class BixolonPrintService(private val printer: IPrinter) {
+class BixolonPrintService(
+    private val printer: IPrinter,
+    private val metrics: IPrintMetrics,
+    private val reprints: ReprintCache,
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+) {
+
+    /**
+     * Lifecycle events (QUEUED → SENDING → SENT → OUTPUT_COMPLETE | FAILED) for every job
+     */
+    val jobEvents: SharedFlow<PrintJobEvent> get() = printer.jobEvents
+
+    /**
+     * Run [block] inside a media session: consecutive jobs on the same media skip
+     * resending width/length. Sessions nest.
+     */
+    suspend fun <T> labelRun(block: suspend BixolonPrintService.() -> T): T {
+        beginLabelRun()
+        try {
+            return block()
+        } finally {
+            endLabelRun()
+        }
+    }
+
+    /** Open a media session; pair every call with [endLabelRun] */
+    fun beginLabelRun() = printer.beginMediaSession()
+
+    fun endLabelRun() = printer.endMediaSession()
 
     suspend fun printReceipt(
+        receipt: Receipt,
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        copies: Int = 1,
+        options: PrintJobOptions = PrintJobOptions()
+    ): Result<Unit> {
+        val elements = metrics.time(PrintPhase.LAYOUT) { receipt.toElements(media.widthDots) }
+        return printer.print(elements, media, copies, options)
+    }
+
+    /**
+     * Start compiling [receipt] in the background while it is still being edited.
+     * Feed edits to [PreparedReceipt.update] and print with [PreparedReceipt.commit].
+     */
+    fun prepare(
         receipt: Receipt,
         media: MediaConfig = MediaConfig.continuous80mm(),
         copies: Int = 1
+    ): PreparedReceipt = PreparedReceipt(printer, metrics, media, copies, scope, receipt)
+
+    /**
+     * Print a recent job again from its compiled form: no layout, no image decoding.
+     * [copies] replaces the copies it was first printed with.
+     */
+    suspend fun reprint(
+        jobId: String,
+        copies: Int = 1,
+        options: PrintJobOptions = PrintJobOptions()
+    ): Result<Unit> {
+        if (copies <= 0) return Result.failure(IllegalArgumentException("copies must be positive"))
+        val commands = reprints.commands(jobId, copies)
+            ?: return Result.failure(NoSuchElementException("Job $jobId is no longer available for reprint"))
+        return printer.printCompiled(commands, copies, options)
+    }
+
+    /** Jobs [reprint] can still send, newest first */
+    fun recentJobs(): List<SentJob> = reprints.recent()
+
+    /**
+     * Numbered labels in one job: the layout is sent once, then only the serial fields
+     * per label. 1,000 labels cost a few dozen KB instead of 1,000 full jobs.
+     */
+    suspend fun printLabelRun(
+        template: LabelTemplate,
+        startSerial: Long,
+        count: Int,
+        step: Long = 1,
+        copies: Int = 1,
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
-        val elements = receipt.toElements(media.widthDots)
-        return printer.print(elements, media, copies)
+        if (count <= 0) return Result.failure(IllegalArgumentException("count must be positive"))
+        if (template.serialFields.isEmpty()) return Result.failure(IllegalArgumentException("Template has no serial fields"))
+        return printer.printLabelRun(template, startSerial, count, step, copies, options)
+    }
+
+    /**
+     * Print one label per item of [source], consumed lazily: at most [bufferSize] labels
+     * are laid out ahead of the printer, and the producer suspends while the link is
+     * busy, so memory stays flat for any run length. Runs in a media session.
+     *
+     * Each label is its own job (`<jobId>-<index>`, counting from [startIndex]), and with an
+     * idempotency key its own key (`<key>-<index>`). [onProgress]
+     * is called once a label is sent. Stops at the first failure, which reports how many
+     * labels were printed.
+     * @return labels printed
+     */
+    suspend fun printLabels(
+        source: Flow<LabelData>,
+        template: LabelTemplate,
+        media: MediaConfig = template.media,
+        bufferSize: Int = DEFAULT_LABEL_BUFFER,
+        startIndex: Long = 0,
+        options: PrintJobOptions = PrintJobOptions(),
+        onProgress: suspend (LabelProgress) -> Unit = {}
+    ): Result<Long> {
+        var printed = 0L
+        return try {
+            labelRun {
+                source
+                    .map { data -> metrics.time(PrintPhase.LAYOUT) { template.bind(data) } to data.copies }
+                    .buffer(bufferSize)
+                    .collectIndexed { position, (elements, copies) ->
+                        val index = startIndex + position
+                        val jobId = "${options.jobId}-$index"
+                        // Cada etiqueta con su propia clave: la misma de la tirada las daría por impresas
+                        val key = options.idempotencyKey?.let { "$it-$index" }
+                        printer.print(elements, media, copies, options.copy(jobId = jobId, idempotencyKey = key)).getOrElse { e ->
+                            throw Exception("Label $index failed after $printed printed: ${e.message}", e)
+                        }
+                        printed++
+                        onProgress(LabelProgress(index, jobId, printed))
+                    }
+            }
+            Result.success(printed)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Result.failure(e)
+        }
     }
 
     suspend fun printText(
@@ -29,17 +169,19 @@ class BixolonPrintService(private val printer: IPrinter) {
         fontSize: FontSize = FontSize.MEDIUM,
         alignment: Alignment = Alignment.LEFT,
         bold: Boolean = false,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         val x = calculateX(alignment, media.widthDots, text.length * 10)
         val element = PrintElement.Text(text, x, 20, TextStyle(fontSize, bold, alignment))
-        return printer.print(listOf(element), media)
+        return printer.print(listOf(element), media, options = options)
     }
 
     suspend fun printTexts(
         texts: List<String>,
         fontSize: FontSize = FontSize.MEDIUM,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         var y = 20
         val elements = texts.map { text ->
@@ -47,19 +189,20 @@ class BixolonPrintService(private val printer: IPrinter) {
             y += 30
             element
         }
-        return printer.print(elements, media)
+        return printer.print(elements, media, options = options)
     }
 
     suspend fun printQR(
         data: String,
         size: Int = 5,
         alignment: Alignment = Alignment.CENTER,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         val qrWidth = size * 20
         val x = calculateX(alignment, media.widthDots, qrWidth)
         val element = PrintElement.QR(data, x, 20, size)
-        return printer.print(listOf(element), media)
+        return printer.print(listOf(element), media, options = options)
     }
 
     suspend fun printBarcode(
@@ -67,43 +210,48 @@ class BixolonPrintService(private val printer: IPrinter) {
         type: BarcodeType = BarcodeType.CODE128,
         height: Int = 60,
         alignment: Alignment = Alignment.CENTER,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         val barcodeWidth = data.length * 10
         val x = calculateX(alignment, media.widthDots, barcodeWidth)
         val element = PrintElement.Barcode(data, x, 20, type, 2, height)
-        return printer.print(listOf(element), media)
+        return printer.print(listOf(element), media, options = options)
     }
 
     suspend fun printImage(
         bitmap: Bitmap,
         alignment: Alignment = Alignment.CENTER,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         val x = calculateX(alignment, media.widthDots, bitmap.width)
-        val element = PrintElement.Image(bitmap, x, 20)
-        return printer.print(listOf(element), media)
+        val element = PrintElement.Image(bitmap.toPrintImage(), x, 20)
+        return printer.print(listOf(element), media, options = options)
     }
 
     suspend fun printImageBase64(
         base64Data: String,
         alignment: Alignment = Alignment.CENTER,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
-        val bitmap = BinaryConverter.base64ToBitmap(base64Data)
+        val bitmap = metrics.time(PrintPhase.DECODE) { BinaryConverter.base64ToBitmap(base64Data) }
             ?: return Result.failure(Exception("Invalid base64 image"))
-        return printImage(bitmap, alignment, media)
+        return printImage(bitmap, alignment, media, options)
     }
 
     suspend fun printPdfBase64(
         base64Data: String,
         page: Int = 1,
         alignment: Alignment = Alignment.CENTER,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
-        val bitmap = PdfRenderer.renderPageToBitmap(base64Data, page, media.widthDots)
-            ?: return Result.failure(Exception("Failed to render PDF page $page"))
-        return printImage(bitmap, alignment, media)
+        val bitmap = metrics.time(PrintPhase.DECODE) {
+            PdfRenderer.renderPageToBitmap(base64Data, page, media.widthDots)
+        } ?: return Result.failure(Exception("Failed to render PDF page $page"))
+        return printImage(bitmap, alignment, media, options)
     }
 
     suspend fun printKeyValue(
@@ -111,10 +259,11 @@ class BixolonPrintService(private val printer: IPrinter) {
         value: String,
         fontSize: FontSize = FontSize.MEDIUM,
         bold: Boolean = false,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         val text = "$key $value"
-        return printText(text, fontSize, Alignment.LEFT, bold, media)
+        return printText(text, fontSize, Alignment.LEFT, bold, media, options)
     }
 
     /**
@@ -142,12 +291,13 @@ class BixolonPrintService(private val printer: IPrinter) {
         vararg columns: ReceiptLine.Column,
         fontSize: FontSize = FontSize.MEDIUM,
         bold: Boolean = false,
-        media: MediaConfig = MediaConfig.continuous80mm()
+        media: MediaConfig = MediaConfig.continuous80mm(),
+        options: PrintJobOptions = PrintJobOptions()
     ): Result<Unit> {
         val line = ReceiptLine.Columns(columns.toList(), fontSize, bold)
         val (element, _) = line.toElement(20, media.widthDots)
         return if (element != null) {
-            printer.print(listOf(element), media)
+            printer.print(listOf(element), media, options = options)
         } else {
             Result.failure(Exception("Failed to create columns element"))
         }
@@ -162,4 +312,9 @@ class BixolonPrintService(private val printer: IPrinter) {
         Alignment.CENTER -> (width - contentWidth) / 2
         Alignment.RIGHT -> width - contentWidth - 10
     }
+
+    companion object {
+        /** Labels laid out ahead of the printer in [printLabels] */
+        const val DEFAULT_LABEL_BUFFER = 8
+    }
 }
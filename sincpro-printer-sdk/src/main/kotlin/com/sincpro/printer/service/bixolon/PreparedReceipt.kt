@@ -0,0 +1,113 @@
+package com.sincpro.printer.service.bixolon
+
+import com.sincpro.printer.domain.IPrintMetrics
+import com.sincpro.printer.domain.IPrinter
+import com.sincpro.printer.domain.MediaConfig
+import com.sincpro.printer.domain.MonoImage
+import com.sincpro.printer.domain.PrintElement
+import com.sincpro.printer.domain.PrintJobOptions
+import com.sincpro.printer.domain.PrintPhase
+import com.sincpro.printer.domain.PrinterCommand
+import com.sincpro.printer.domain.Receipt
+import com.sincpro.printer.domain.ReceiptLine
+import com.sincpro.printer.domain.shiftedDown
+import com.sincpro.printer.domain.time
+import com.sincpro.printer.infrastructure.ImageDither
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A receipt compiled in the background while it is still being edited.
+ *
+ * Each [update] lays out only the lines that changed (images are dithered once, when
+ * they first appear) and recompiles the job off the caller's thread; edits that arrive
+ * faster than that are conflated. [commit] waits for the latest edit and sends the
+ * compiled job as is, so the time from "Pay" to paper is mostly transmit time.
+ *
+ * Created by [BixolonPrintService.prepare]. A handle is used once: [commit] or [discard] ends it.
+ */
+class PreparedReceipt internal constructor(
+    private val printer: IPrinter,
+    private val metrics: IPrintMetrics,
+    private val media: MediaConfig,
+    private val copies: Int,
+    scope: CoroutineScope,
+    receipt: Receipt
+) {
+
+    private class Edit(val version: Long, val receipt: Receipt)
+
+    private class Compiled(val version: Long, val commands: Result<List<PrinterCommand>>)
+
+    private class LaidOutLine(val element: PrintElement?, val height: Int)
+
+    private val versions = AtomicLong()
+    private val closed = AtomicBoolean()
+    private val edits = MutableStateFlow(Edit(0, receipt))
+    private val compiled = MutableStateFlow<Compiled?>(null)
+
+    // Solo lo usa el worker: líneas ya maquetadas en y = 0, por contenido
+    private var laidOut = HashMap<ReceiptLine, LaidOutLine>()
+
+    private val worker = scope.launch {
+        edits.collect { edit ->
+            compiled.value = Compiled(edit.version, runCatching { compile(edit.receipt) })
+        }
+    }
+
+    val isOpen: Boolean get() = !closed.get()
+
+    /** Replace the receipt; only new or changed lines are laid out again */
+    fun update(receipt: Receipt) {
+        check(isOpen) { "Prepared receipt already committed or discarded" }
+        edits.value = Edit(versions.incrementAndGet(), receipt)
+    }
+
+    /** Send the latest version, waiting only if it is still being compiled */
+    suspend fun commit(options: PrintJobOptions = PrintJobOptions()): Result<Unit> {
+        if (!closed.compareAndSet(false, true)) {
+            return Result.failure(IllegalStateException("Prepared receipt already committed or discarded"))
+        }
+        val latest = edits.value.version
+        val ready = compiled.first { it != null && it.version >= latest }!!
+        worker.cancel()
+        return ready.commands.fold(
+            onSuccess = { printer.printCompiled(it, copies, options) },
+            onFailure = { Result.failure(it) }
+        )
+    }
+
+    fun discard() {
+        closed.set(true)
+        worker.cancel()
+    }
+
+    private fun compile(receipt: Receipt): List<PrinterCommand> = metrics.time(PrintPhase.LAYOUT) {
+        val previous = laidOut
+        val current = HashMap<ReceiptLine, LaidOutLine>()
+        val elements = ArrayList<PrintElement>()
+        var y = Receipt.TOP_DOTS
+        receipt.lines.forEach { line ->
+            val laid = current.getOrPut(line) { previous[line] ?: layOut(line) }
+            laid.element?.let { elements.add(it.shiftedDown(y)) }
+            y += laid.height
+        }
+        laidOut = current
+        PrinterCommand.compile(elements, media, copies)
+    }
+
+    private fun layOut(line: ReceiptLine): LaidOutLine {
+        val (element, height) = line.toElement(0, media.widthDots)
+        // Difuminar aquí, no en el envío: es lo más caro de una imagen
+        val ready = if (element is PrintElement.Image) {
+            element.copy(image = MonoImage(ImageDither.floydSteinberg(element.image)))
+        } else {
+            element
+        }
+        return LaidOutLine(ready, height)
+    }
+}
@@ -0,0 +1,26 @@
+plugins {
+    id("org.jetbrains.kotlin.jvm")
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+tasks.withType<org.jetbrains.kotlin.gradle.tasks.KotlinCompile>().configureEach {
+    kotlinOptions.jvmTarget = "17"
+}
+
+dependencies {
+    testImplementation(kotlin("test"))
+}
+
+// ./gradlew :testkit:test
+tasks.test {
+    useJUnitPlatform()
+}
+
+application {
+    mainClass.set("com.sincpro.printer.testkit.LoopbackPrinterMainKt")
+}
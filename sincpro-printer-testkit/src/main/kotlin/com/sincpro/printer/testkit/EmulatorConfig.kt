@@ -0,0 +1,56 @@
+package com.sincpro.printer.testkit
+
+/**
+ * TESTKIT - Loopback printer configuration
+ *
+ * @param port TCP port, 0 picks a free ephemeral port
+ * @param bytesPerSecond link throttle (null = unlimited), e.g. ~20_000 for Bluetooth SPP
+ * @param dotsPerSecond print head throttle (null = prints instantly), see [dotsPerSecond]
+ * @param recordStream keep the raw stream and every command for inspection; turn it off
+ *   for long runs, where only the counters in the stats are kept
+ * @param maxRecordedCommands most recent commands kept while recording, the oldest dropped first
+ * @param queryHandler overrides the built-in answers to `~` queries; return null to fall back
+ */
+data class EmulatorConfig(
+    val port: Int = 0,
+    val bindAddress: String = "127.0.0.1",
+    val bytesPerSecond: Long? = null,
+    val dotsPerSecond: Long? = null,
+    val modelName: String = "SPP-L310",
+    val firmware: String = "V1.00 EMU",
+    val serialNumber: String = "EMU0000001",
+    val recordStream: Boolean = true,
+    val maxRecordedCommands: Int = DEFAULT_MAX_RECORDED_COMMANDS,
+    val queryHandler: ((String) -> ByteArray?)? = null
+) {
+    companion object {
+        const val DEFAULT_MAX_RECORDED_COMMANDS = 10_000
+
+        /**
+         * Print head rate for a speed expressed in tenths of inch per second
+         * (the unit of `Speed.ips`: 25 → 2.5 ips).
+         */
+        fun dotsPerSecond(ipsTenths: Int, dpi: Int = 203): Long = ipsTenths.toLong() * dpi / 10
+    }
+}
+
+/**
+ * One CRLF-terminated command received by the emulator.
+ * Binary payloads (images) are summarized, not decoded: [text] is their header and
+ * [byteCount] includes the raw bytes.
+ */
+data class ReceivedCommand(
+    val connectionId: Int,
+    val receivedAtNanos: Long,
+    val text: String,
+    val byteCount: Int
+)
+
+data class EmulatorStats(
+    val connections: Int,
+    val bytesReceived: Long,
+    val commands: Long,
+    val labelsPrinted: Long,
+    val dotsPrinted: Long,
+    val queriesAnswered: Long
+)
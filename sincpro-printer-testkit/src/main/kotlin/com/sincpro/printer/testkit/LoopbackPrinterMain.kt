@@ -0,0 +1,46 @@
+package com.sincpro.printer.testkit
+
+import java.util.concurrent.CountDownLatch
+
+/**
+ * Standalone loopback printer.
+ *
+ * ```
+ * ./gradlew :testkit:run --args="--port 9100 --bps 20000 --ips 50"
+ * ```
+ *
+ * - `--port`: TCP port (default 9100)
+ * - `--bind`: bind address (default 127.0.0.1, use 0.0.0.0 for a device on the LAN)
+ * - `--bps`: link throttle in bytes per second
+ * - `--ips`: print speed in tenths of inch per second, at 203 dpi
+ */
+fun main(args: Array<String>) {
+    val options = parseArgs(args)
+    val config = EmulatorConfig(
+        port = options["port"]?.toInt() ?: DEFAULT_PORT,
+        bindAddress = options["bind"] ?: "127.0.0.1",
+        bytesPerSecond = options["bps"]?.toLong(),
+        dotsPerSecond = options["ips"]?.toInt()?.let { EmulatorConfig.dotsPerSecond(it) },
+        // Proceso de larga duración: no acumular el flujo completo en memoria
+        recordStream = false
+    )
+
+    val server = LoopbackPrinterServer(config).start()
+    val stopped = CountDownLatch(1)
+    Runtime.getRuntime().addShutdownHook(Thread {
+        server.close()
+        println(server.stats())
+        stopped.countDown()
+    })
+
+    println("Loopback printer listening on ${config.bindAddress}:${server.port}")
+    stopped.await()
+}
+
+private const val DEFAULT_PORT = 9100
+
+private fun parseArgs(args: Array<String>): Map<String, String> =
+    args.toList()
+        .chunked(2)
+        .filter { it.size == 2 && it[0].startsWith("--") }
+        .associate { it[0].removePrefix("--") to it[1] }
@@ -0,0 +1,292 @@
+package com.sincpro.printer.testkit
+
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.io.IOException
+import java.io.OutputStream
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.Collections
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.concurrent.thread
+
+/**
+ * TESTKIT - Loopback Bixolon label printer
+ *
+ * Local TCP server that stands in for a WiFi printer on port 9100 so the
+ * WIFI path of `BixolonPrinterAdapter` can be load-tested without hardware.
+ *
+ * It understands just enough SLCS to be useful:
+ * - Commands are CRLF-terminated lines, recorded with timestamps while [EmulatorConfig.recordStream] is on
+ *   (the last [EmulatorConfig.maxRecordedCommands] of them)
+ * - `LD<x>,<y>,<bytesPerRow>,<height>,` is followed by that many raw bitmap bytes, skipped
+ *   whatever they contain (framing as in `SlcsEncoder`)
+ * - `SL<length>,...` sets the label length used to time printing
+ * - `P<copies>[,<sets>]` prints: counts labels and throttles by [EmulatorConfig.dotsPerSecond]
+ * - Lines starting with `~` are queries: status → 2 status bytes, model/firmware/serial → text
+ *
+ * The vendor library encodes commands in native code, so queries are matched by
+ * keyword rather than by exact byte sequence. Use [EmulatorConfig.queryHandler]
+ * to pin down an exact exchange.
+ *
+ * ```
+ * LoopbackPrinterServer(EmulatorConfig(bytesPerSecond = 20_000)).start().use { server ->
+ *     sdk.bixolon.connectivity.connectWifi("127.0.0.1", server.port)
+ *     // ... print ...
+ *     println(server.stats())
+ * }
+ * ```
+ */
+class LoopbackPrinterServer(private val config: EmulatorConfig = EmulatorConfig()) : Closeable {
+
+    private var serverSocket: ServerSocket? = null
+    private val running = AtomicBoolean(false)
+    private val clients = Collections.synchronizedList(mutableListOf<Socket>())
+
+    private val stream = ByteArrayOutputStream()
+    private val commands = ArrayDeque<ReceivedCommand>()
+
+    private val connectionCount = AtomicInteger()
+    private val bytesReceived = AtomicLong()
+    private val commandCount = AtomicLong()
+    private val labelsPrinted = AtomicLong()
+    private val dotsPrinted = AtomicLong()
+    private val queriesAnswered = AtomicLong()
+
+    @Volatile
+    private var statusFirstByte: Int = 0
+
+    @Volatile
+    private var statusSecondByte: Int = 0
+
+    val port: Int get() = serverSocket?.localPort ?: -1
+
+    fun start(): LoopbackPrinterServer {
+        check(running.compareAndSet(false, true)) { "Emulator already running" }
+        val socket = ServerSocket(config.port, BACKLOG, InetAddress.getByName(config.bindAddress))
+        serverSocket = socket
+        thread(name = "loopback-printer-accept", isDaemon = true) { acceptLoop(socket) }
+        return this
+    }
+
+    override fun close() {
+        if (!running.compareAndSet(true, false)) return
+        runCatching { serverSocket?.close() }
+        synchronized(clients) { clients.forEach { runCatching { it.close() } } }
+        serverSocket = null
+    }
+
+    /**
+     * Report a printer condition on the next status query.
+     * Bits follow `BixolonLabelPrinter.STATUS_1ST_BYTE_*` / `STATUS_2ND_BYTE_*`.
+     */
+    fun setStatus(firstByte: Int, secondByte: Int = 0) {
+        statusFirstByte = firstByte
+        statusSecondByte = secondByte
+    }
+
+    fun receivedBytes(): ByteArray = synchronized(stream) { stream.toByteArray() }
+
+    /** Most recent commands, oldest first */
+    fun commands(): List<ReceivedCommand> = synchronized(commands) { commands.toList() }
+
+    fun stats() = EmulatorStats(
+        connections = connectionCount.get(),
+        bytesReceived = bytesReceived.get(),
+        commands = commandCount.get(),
+        labelsPrinted = labelsPrinted.get(),
+        dotsPrinted = dotsPrinted.get(),
+        queriesAnswered = queriesAnswered.get()
+    )
+
+    fun reset() {
+        synchronized(stream) { stream.reset() }
+        synchronized(commands) { commands.clear() }
+        bytesReceived.set(0)
+        commandCount.set(0)
+        labelsPrinted.set(0)
+        dotsPrinted.set(0)
+        queriesAnswered.set(0)
+    }
+
+    // ==================== Conexiones ====================
+
+    private fun acceptLoop(socket: ServerSocket) {
+        while (running.get()) {
+            val client = try {
+                socket.accept()
+            } catch (e: IOException) {
+                break
+            }
+            val id = connectionCount.incrementAndGet()
+            clients.add(client)
+            thread(name = "loopback-printer-$id", isDaemon = true) {
+                try {
+                    serve(client, id)
+                } catch (_: IOException) {
+                    // Cliente desconectado
+                } finally {
+                    clients.remove(client)
+                    runCatching { client.close() }
+                }
+            }
+        }
+    }
+
+    private fun serve(client: Socket, connectionId: Int) {
+        client.tcpNoDelay = true
+        val input = client.getInputStream()
+        val output = client.getOutputStream()
+        val linkThrottle = Throttle(config.bytesPerSecond)
+        val session = Session(connectionId)
+        val buffer = ByteArray(CHUNK_SIZE)
+
+        while (running.get()) {
+            val read = input.read(buffer)
+            if (read < 0) break
+
+            linkThrottle.acquire(read.toLong())
+            bytesReceived.addAndGet(read.toLong())
+            if (config.recordStream) {
+                synchronized(stream) { stream.write(buffer, 0, read) }
+            }
+
+            for (i in 0 until read) {
+                session.accept(buffer[i], output)
+            }
+        }
+    }
+
+    // ==================== Protocolo ====================
+
+    private inner class Session(private val connectionId: Int) {
+        private val line = ByteArrayOutputStream()
+        private var lineBytes = 0
+        private var commas = 0
+        private var labelLengthDots = DEFAULT_LABEL_LENGTH
+
+        // Bytes de imagen que quedan por saltar: pueden contener LF, `~` o `P1`
+        private var rawRemaining = 0L
+
+        fun accept(byte: Byte, output: OutputStream) {
+            if (rawRemaining > 0) {
+                rawRemaining--
+                lineBytes++
+                return
+            }
+            when (byte) {
+                LF -> {
+                    handle(line.toByteArray(), lineBytes, output)
+                    line.reset()
+                    lineBytes = 0
+                    commas = 0
+                }
+                CR -> Unit
+                else -> {
+                    lineBytes++
+                    if (line.size() < MAX_LINE_PREVIEW) line.write(byte.toInt())
+                    if (byte == COMMA && ++commas == IMAGE_HEADER_FIELDS) rawRemaining = imageBytes()
+                }
+            }
+        }
+
+        /** Raw bytes after a complete `LD` header, 0 for any other command */
+        private fun imageBytes(): Long {
+            val header = line.toString(Charsets.ISO_8859_1.name())
+            if (!header.startsWith("LD")) return 0
+            val fields = header.drop(2).split(',')
+            val bytesPerRow = fields.getOrNull(2)?.trim()?.toLongOrNull() ?: return 0
+            val height = fields.getOrNull(3)?.trim()?.toLongOrNull() ?: return 0
+            return bytesPerRow * height
+        }
+
+        private fun handle(preview: ByteArray, byteCount: Int, output: OutputStream) {
+            if (byteCount == 0) return
+            val text = preview.toString(Charsets.ISO_8859_1)
+            commandCount.incrementAndGet()
+            if (config.recordStream) record(ReceivedCommand(connectionId, System.nanoTime(), text, byteCount))
+
+            when {
+                text.startsWith("~") -> answer(text, output)
+                text.startsWith("SL") -> text.drop(2).substringBefore(',').trim().toIntOrNull()
+                    ?.let { labelLengthDots = it }
+                isPrintCommand(text) -> printLabels(text.drop(1).substringBefore(',').trim().toIntOrNull() ?: 1)
+            }
+        }
+
+        private fun printLabels(copies: Int) {
+            val dots = labelLengthDots.toLong() * copies
+            config.dotsPerSecond?.let { rate -> sleepNanos(dots * 1_000_000_000L / rate) }
+            labelsPrinted.addAndGet(copies.toLong())
+            dotsPrinted.addAndGet(dots)
+        }
+
+        private fun answer(query: String, output: OutputStream) {
+            val response = config.queryHandler?.invoke(query) ?: defaultAnswer(query) ?: return
+            output.write(response)
+            output.flush()
+            queriesAnswered.incrementAndGet()
+        }
+    }
+
+    private fun record(command: ReceivedCommand) {
+        if (config.maxRecordedCommands <= 0) return
+        synchronized(commands) {
+            if (commands.size >= config.maxRecordedCommands) commands.removeFirst()
+            commands.addLast(command)
+        }
+    }
+
+    private fun defaultAnswer(query: String): ByteArray? {
+        val upper = query.uppercase()
+        return when {
+            "STATUS" in upper || "CHECK" in upper ->
+                byteArrayOf(statusFirstByte.toByte(), statusSecondByte.toByte())
+            "NAME" in upper || "MODEL" in upper -> textAnswer(config.modelName)
+            "FIRM" in upper || "VERSION" in upper -> textAnswer(config.firmware)
+            "SERIAL" in upper -> textAnswer(config.serialNumber)
+            else -> null
+        }
+    }
+
+    private fun textAnswer(value: String) = "$value\r\n".toByteArray(Charsets.US_ASCII)
+
+    private fun isPrintCommand(text: String) =
+        text.length >= 2 && text[0] == 'P' && text[1].isDigit()
+
+    /**
+     * Paces a stream to a fixed rate from the moment it was created.
+     */
+    private class Throttle(private val unitsPerSecond: Long?) {
+        private val startNanos = System.nanoTime()
+        private var consumed = 0L
+
+        fun acquire(units: Long) {
+            val rate = unitsPerSecond ?: return
+            consumed += units
+            val dueNanos = startNanos + consumed * 1_000_000_000L / rate
+            sleepNanos(dueNanos - System.nanoTime())
+        }
+    }
+
+    companion object {
+        private const val BACKLOG = 4
+        private const val CHUNK_SIZE = 4096
+        private const val MAX_LINE_PREVIEW = 256
+        private const val DEFAULT_LABEL_LENGTH = 400
+        private const val LF: Byte = 0x0A
+        private const val CR: Byte = 0x0D
+        private const val COMMA = ','.code.toByte()
+
+        // LD<x>,<y>,<bytesPerRow>,<height>,
+        private const val IMAGE_HEADER_FIELDS = 4
+
+        private fun sleepNanos(nanos: Long) {
+            if (nanos <= 0) return
+            Thread.sleep(nanos / 1_000_000, (nanos % 1_000_000).toInt())
+        }
+    }
+}
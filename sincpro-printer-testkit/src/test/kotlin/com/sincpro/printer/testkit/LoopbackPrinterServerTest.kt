@@ -0,0 +1,88 @@
+package com.sincpro.printer.testkit
+
+import java.io.ByteArrayOutputStream
+import java.net.Socket
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.fail
+
+class LoopbackPrinterServerTest {
+
+    @Test
+    fun skipsBitmapPayloadAndRecordsCommands() {
+        LoopbackPrinterServer().start().use { server ->
+            val job = ByteArrayOutputStream().apply {
+                write("SL240,24\r\n")
+                // 2 bytes por fila × 3 filas, con LF, `~` y `P1` dentro de la imagen
+                write("LD0,0,2,3,")
+                write(byteArrayOf(0x0A, '~'.code.toByte(), 'P'.code.toByte(), '1'.code.toByte(), 0x0D, 0x0A))
+                write("\r\n")
+                write("P2\r\n")
+            }.toByteArray()
+
+            send(server, job)
+            awaitCommands(server, 3)
+
+            val commands = server.commands()
+            assertEquals(listOf("SL240,24", "LD0,0,2,3,", "P2"), commands.map { it.text })
+            assertEquals("LD0,0,2,3,".length + 6, commands[1].byteCount)
+            val stats = server.stats()
+            assertEquals(2, stats.labelsPrinted)
+            assertEquals(480, stats.dotsPrinted)
+            assertEquals(0, stats.queriesAnswered)
+            assertEquals(job.size.toLong(), stats.bytesReceived)
+        }
+    }
+
+    @Test
+    fun keepsOnlyTheLatestCommands() {
+        LoopbackPrinterServer(EmulatorConfig(maxRecordedCommands = 3)).start().use { server ->
+            send(server, (1..5).joinToString("") { "SL$it\r\n" }.toByteArray())
+            awaitCommands(server, 5)
+
+            assertEquals(listOf("SL3", "SL4", "SL5"), server.commands().map { it.text })
+        }
+    }
+
+    @Test
+    fun recordsNothingWithoutRecordStream() {
+        LoopbackPrinterServer(EmulatorConfig(recordStream = false)).start().use { server ->
+            send(server, "SL240\r\nP1\r\n".toByteArray())
+            awaitCommands(server, 2)
+
+            assertEquals(emptyList(), server.commands())
+            assertEquals(0, server.receivedBytes().size)
+            assertEquals(1, server.stats().labelsPrinted)
+        }
+    }
+
+    private fun send(server: LoopbackPrinterServer, bytes: ByteArray) {
+        Socket("127.0.0.1", server.port).use { socket ->
+            socket.getOutputStream().apply {
+                write(bytes)
+                flush()
+            }
+            awaitBytes(server, bytes.size.toLong())
+        }
+    }
+
+    private fun awaitBytes(server: LoopbackPrinterServer, bytes: Long) =
+        awaitUntil("$bytes bytes") { server.stats().bytesReceived >= bytes }
+
+    private fun awaitCommands(server: LoopbackPrinterServer, count: Long) =
+        awaitUntil("$count commands") { server.stats().commands >= count }
+
+    private fun awaitUntil(what: String, condition: () -> Boolean) {
+        val deadline = System.nanoTime() + TIMEOUT_NANOS
+        while (!condition()) {
+            if (System.nanoTime() > deadline) fail("Timed out waiting for $what")
+            Thread.sleep(5)
+        }
+    }
+
+    private fun ByteArrayOutputStream.write(text: String) = write(text.toByteArray(Charsets.ISO_8859_1))
+
+    companion object {
+        private const val TIMEOUT_NANOS = 5_000_000_000L
+    }
+}
@@ -4,7 +4,12 @@ import type {
   PairedPrinter,
   PrinterStatus,
   PrinterInfo,
+  ConnectionState,
+  ConnectionStateEvent,
+  ConnectionCandidate,
   PrinterConfig,
+  ThermalPolicy,
+  ThermalState,
   PrintTextOptions,
   PrintTextsOptions,
   PrintQROptions,
@@ -13,9 +18,28 @@ import type {
   PrintPdfOptions,
   PrintKeyValueOptions,
   PrintReceiptOptions,
+  PrepareReceiptOptions,
+  ReprintOptions,
+  SentJob,
+  PrintJobOptions,
+  PrintLabelRunOptions,
+  PrintLabelsFromFileOptions,
+  LabelImportResult,
+  LabelProgressEvent,
+  PrintJobEvent,
+  MetricsSnapshot,
+  TraceInfo,
   Receipt,
+  LabelTemplate,
 } from './types';
 
+/**
+ * Subscription returned by event listeners
+ */
+export interface Subscription {
+  remove(): void;
+}
+
 /**
  * Native module interface matching PrinterModule.kt
  */
@@ -27,35 +51,78 @@ interface SincproPrinterNativeModule {
   // Connection
   connectBluetooth(address: string, timeoutMs?: number): Promise<void>;
   connectWifi(ip: string, port?: number, timeoutMs?: number): Promise<void>;
+  connectAny(candidates: ConnectionCandidate[], staggerMs?: number): Promise<ConnectionCandidate>;
   connectUsb(): Promise<void>;
   disconnect(): Promise<void>;
   isConnected(): boolean;
+  getConnectionState(): ConnectionState;
   getStatus(): Promise<PrinterStatus>;
+  startStatusUpdates(): void;
+  stopStatusUpdates(): void;
   getInfo(): Promise<PrinterInfo>;
   getDpi(): number;
 
   // Configuration
   setConfig(config: PrinterConfig): Promise<void>;
   getConfig(): PrinterConfig;
+  setThermalPolicy(policy: ThermalPolicy): Promise<void>;
+  getThermalState(): ThermalState;
 
-  // Print - Text
-  printText(text: string, options?: PrintTextOptions): Promise<void>;
-  printTexts(texts: string[], options?: PrintTextsOptions): Promise<void>;
+  // Print - Text (resolve with the job id)
+  printText(text: string, options?: PrintTextOptions): Promise<string>;
+  printTexts(texts: string[], options?: PrintTextsOptions): Promise<string>;
 
   // Print - QR & Barcode
-  printQR(data: string, options?: PrintQROptions): Promise<void>;
-  printBarcode(data: string, options?: PrintBarcodeOptions): Promise<void>;
+  printQR(data: string, options?: PrintQROptions): Promise<string>;
+  printBarcode(data: string, options?: PrintBarcodeOptions): Promise<string>;
 
   // Print - Images & PDF
-  printImageBase64(base64Data: string, options?: PrintImageOptions): Promise<void>;
-  printPdfBase64(base64Data: string, options?: PrintPdfOptions): Promise<void>;
+  printImageBase64(base64Data: string, options?: PrintImageOptions): Promise<string>;
+  printPdfBase64(base64Data: string, options?: PrintPdfOptions): Promise<string>;
   getPdfPageCount(base64Data: string): number;
 
   // Print - Receipt
-  printReceipt(receipt: Receipt, options?: PrintReceiptOptions): Promise<void>;
+  printReceipt(receipt: Receipt, options?: PrintReceiptOptions): Promise<string>;
+  prepareReceipt(receipt: Receipt, options?: PrepareReceiptOptions): Promise<string>;
+  updatePreparedReceipt(id: string, receipt: Receipt): Promise<void>;
+  commitPreparedReceipt(id: string, options?: PrintJobOptions): Promise<string>;
+  discardPreparedReceipt(id: string): void;
+
+  // Print - Reprint
+  reprint(jobId: string, options?: ReprintOptions): Promise<string>;
+  getRecentJobs(): SentJob[];
 
   // Print - Key-Value
-  printKeyValue(key: string, value: string, options?: PrintKeyValueOptions): Promise<void>;
+  printKeyValue(key: string, value: string, options?: PrintKeyValueOptions): Promise<string>;
+
+  // Print - Label runs
+  printLabelRun(template: LabelTemplate, options: PrintLabelRunOptions): Promise<string>;
+  printLabelsFromFile(
+    uri: string,
+    template: LabelTemplate,
+    options?: PrintLabelsFromFileOptions
+  ): Promise<LabelImportResult>;
+  getImportCheckpoint(importId: string): number;
+  clearImportCheckpoint(importId: string): void;
+  beginLabelRun(): void;
+  endLabelRun(): void;
+
+  // Metrics
+  getMetrics(): MetricsSnapshot;
+  resetMetrics(): void;
+
+  // Trace
+  startTrace(): void;
+  stopTrace(): Promise<TraceInfo>;
+
+  // Events
+  addListener(eventName: 'onPrintJob', listener: (event: PrintJobEvent) => void): Subscription;
+  addListener(
+    eventName: 'onConnectionStateChange',
+    listener: (event: ConnectionStateEvent) => void
+  ): Subscription;
+  addListener(eventName: 'onLabelProgress', listener: (event: LabelProgressEvent) => void): Subscription;
+  addListener(eventName: 'onStatusChange', listener: (event: PrinterStatus) => void): Subscription;
 }
 
 const NativeModule = requireNativeModule<SincproPrinterNativeModule>('SincproPrinter');
@@ -109,6 +176,16 @@ export const connection = {
    */
   connectUsb: (): Promise<void> => NativeModule.connectUsb(),
 
+  /**
+   * Race several ways to reach the printer; the first to connect wins, the rest are dropped.
+   * Candidates with the best measured latency/throughput go first, the others start
+   * `staggerMs` later (or as soon as the previous attempt fails).
+   * @param staggerMs Head start of each candidate over the next (default: 250)
+   * @returns The candidate that connected
+   */
+  connectAny: (candidates: ConnectionCandidate[], staggerMs?: number): Promise<ConnectionCandidate> =>
+    NativeModule.connectAny(candidates, staggerMs),
+
   /**
    * Disconnect from current printer
    */
@@ -119,6 +196,11 @@ export const connection = {
    */
   isConnected: (): boolean => NativeModule.isConnected(),
 
+  /**
+   * Current connection state, without a round trip to the printer
+   */
+  getState: (): ConnectionState => NativeModule.getConnectionState(),
+
   /**
    * Get printer status (paper, cover, errors)
    */
@@ -163,6 +245,24 @@ export const config = {
    * Get current printer configuration
    */
   get: (): PrinterConfig => NativeModule.getConfig(),
+
+  /**
+   * Pace long runs so the print head does not reach its overheat stop: speed (and
+   * optionally density) steps down, then pauses are added between jobs, and the run
+   * steps back up as the head cools
+   * @example
+   * ```ts
+   * await config.setThermalPolicy({ minSpeed: 'medium' });
+   * // turn it off again
+   * await config.setThermalPolicy({ enabled: false });
+   * ```
+   */
+  setThermalPolicy: (policy: ThermalPolicy): Promise<void> => NativeModule.setThermalPolicy(policy),
+
+  /**
+   * Current thermal pacing step, estimated heat and measured labels per hour
+   */
+  getThermalState: (): ThermalState => NativeModule.getThermalState(),
 };
 
 // ============================================================
@@ -171,42 +271,43 @@ export const config = {
 
 /**
  * Print API for all printing operations
+ * Every call resolves with its job id (see `events.onPrintJob`)
  */
 export const print = {
   /**
    * Print a single line of text
    */
-  text: (text: string, options?: PrintTextOptions): Promise<void> =>
+  text: (text: string, options?: PrintTextOptions): Promise<string> =>
     NativeModule.printText(text, options),
 
   /**
    * Print multiple lines of text
    */
-  texts: (texts: string[], options?: PrintTextsOptions): Promise<void> =>
+  texts: (texts: string[], options?: PrintTextsOptions): Promise<string> =>
     NativeModule.printTexts(texts, options),
 
   /**
    * Print a QR code
    */
-  qr: (data: string, options?: PrintQROptions): Promise<void> =>
+  qr: (data: string, options?: PrintQROptions): Promise<string> =>
     NativeModule.printQR(data, options),
 
   /**
    * Print a barcode
    */
-  barcode: (data: string, options?: PrintBarcodeOptions): Promise<void> =>
+  barcode: (data: string, options?: PrintBarcodeOptions): Promise<string> =>
     NativeModule.printBarcode(data, options),
 
   /**
    * Print an image from base64
    */
-  imageBase64: (base64Data: string, options?: PrintImageOptions): Promise<void> =>
+  imageBase64: (base64Data: string, options?: PrintImageOptions): Promise<string> =>
     NativeModule.printImageBase64(base64Data, options),
 
   /**
    * Print a PDF page from base64
    */
-  pdfBase64: (base64Data: string, options?: PrintPdfOptions): Promise<void> =>
+  pdfBase64: (base64Data: string, options?: PrintPdfOptions): Promise<string> =>
     NativeModule.printPdfBase64(base64Data, options),
 
   /**
@@ -217,14 +318,185 @@ export const print = {
   /**
    * Print a complete receipt with header, body, footer
    */
-  receipt: (receipt: Receipt, options?: PrintReceiptOptions): Promise<void> =>
+  receipt: (receipt: Receipt, options?: PrintReceiptOptions): Promise<string> =>
     NativeModule.printReceipt(receipt, options),
 
+  /**
+   * Start compiling a receipt natively while it is still being edited; resolves with a handle id.
+   * Only changed lines are laid out again on each update, so committing sends a ready job.
+   */
+  prepareReceipt: (receipt: Receipt, options?: PrepareReceiptOptions): Promise<string> =>
+    NativeModule.prepareReceipt(receipt, options),
+
+  /**
+   * Replace the receipt behind a prepared handle
+   */
+  updatePreparedReceipt: (id: string, receipt: Receipt): Promise<void> =>
+    NativeModule.updatePreparedReceipt(id, receipt),
+
+  /**
+   * Print the latest version of a prepared receipt (resolves with the job id) and release the handle
+   */
+  commitPreparedReceipt: (id: string, options?: PrintJobOptions): Promise<string> =>
+    NativeModule.commitPreparedReceipt(id, options),
+
+  /**
+   * Release a prepared receipt without printing it
+   */
+  discardPreparedReceipt: (id: string): void => NativeModule.discardPreparedReceipt(id),
+
+  /**
+   * Print a recent job again from its compiled form, without rebuilding it; resolves with the new job id
+   */
+  reprint: (jobId: string, options?: ReprintOptions): Promise<string> =>
+    NativeModule.reprint(jobId, options),
+
+  /**
+   * Recent jobs that can still be reprinted, newest first
+   */
+  getRecentJobs: (): SentJob[] => NativeModule.getRecentJobs(),
+
   /**
    * Print a key-value pair (two columns)
    */
-  keyValue: (key: string, value: string, options?: PrintKeyValueOptions): Promise<void> =>
+  keyValue: (key: string, value: string, options?: PrintKeyValueOptions): Promise<string> =>
     NativeModule.printKeyValue(key, value, options),
+
+  /**
+   * Print numbered labels in one job: the layout is sent once, then only the serial fields
+   */
+  labelRun: (template: LabelTemplate, options: PrintLabelRunOptions): Promise<string> =>
+    NativeModule.printLabelRun(template, options),
+
+  /**
+   * Print one label per row of a CSV/JSON file, read natively and streamed to the printer.
+   * Placeholders like `{sku}` in the template are filled from the row. After a failure,
+   * calling again with the same uri/importId resumes after the last printed row.
+   */
+  labelsFromFile: (
+    uri: string,
+    template: LabelTemplate,
+    options?: PrintLabelsFromFileOptions
+  ): Promise<LabelImportResult> => NativeModule.printLabelsFromFile(uri, template, options),
+
+  /**
+   * Rows already printed for an interrupted import
+   */
+  getImportCheckpoint: (importId: string): number => NativeModule.getImportCheckpoint(importId),
+
+  /**
+   * Forget an import checkpoint so the next call starts from the first row
+   */
+  clearImportCheckpoint: (importId: string): void => NativeModule.clearImportCheckpoint(importId),
+
+  /**
+   * Start a label run: consecutive jobs on the same media skip resending width/length.
+   * Pair every call with endLabelRun(); runs nest.
+   */
+  beginLabelRun: (): void => NativeModule.beginLabelRun(),
+
+  /**
+   * End a label run started with beginLabelRun()
+   */
+  endLabelRun: (): void => NativeModule.endLabelRun(),
+};
+
+// ============================================================
+// METRICS API
+// ============================================================
+
+/**
+ * Metrics API for per-phase print latency (p50/p95/p99 per printer)
+ */
+export const metrics = {
+  /**
+   * Get a snapshot of latency histograms per printer and phase
+   */
+  get: (): MetricsSnapshot => NativeModule.getMetrics(),
+
+  /**
+   * Clear all recorded metrics
+   */
+  reset: (): void => NativeModule.resetMetrics(),
+};
+
+// ============================================================
+// TRACE API
+// ============================================================
+
+/**
+ * Trace API: record the command stream sent to the printer for offline replay
+ */
+export const trace = {
+  /**
+   * Start recording every command sent (discards an unfinished recording)
+   */
+  start: (): void => NativeModule.startTrace(),
+
+  /**
+   * Stop recording and write the trace to the app cache directory
+   */
+  stop: (): Promise<TraceInfo> => NativeModule.stopTrace(),
+};
+
+// ============================================================
+// EVENTS API
+// ============================================================
+
+// Listeners of onStatusChange: the native status reader runs while there is at least one
+let statusListeners = 0;
+
+/**
+ * Events API for print job lifecycle tracking
+ */
+export const events = {
+  /**
+   * Subscribe to print job lifecycle events
+   * (QUEUED → SENDING → SENT → OUTPUT_COMPLETE, or FAILED)
+   * @example
+   * ```ts
+   * const sub = events.onPrintJob((e) => console.log(e.jobId, e.phase, e.elapsedMs));
+   * // later
+   * sub.remove();
+   * ```
+   */
+  onPrintJob: (listener: (event: PrintJobEvent) => void): Subscription =>
+    NativeModule.addListener('onPrintJob', listener),
+
+  /**
+   * Subscribe to connection state changes, including link drops reported by the printer
+   */
+  onConnectionStateChange: (listener: (event: ConnectionStateEvent) => void): Subscription =>
+    NativeModule.addListener('onConnectionStateChange', listener),
+
+  /**
+   * Subscribe to per-label progress of print.labelsFromFile()
+   */
+  onLabelProgress: (listener: (event: LabelProgressEvent) => void): Subscription =>
+    NativeModule.addListener('onLabelProgress', listener),
+
+  /**
+   * Subscribe to printer status changes instead of polling getStatus().
+   * The status is read natively only while at least one listener is subscribed,
+   * and only changes are delivered.
+   * @example
+   * ```ts
+   * const sub = events.onStatusChange((s) => setPaperOut(!s.hasPaper));
+   * ```
+   */
+  onStatusChange: (listener: (event: PrinterStatus) => void): Subscription => {
+    const subscription = NativeModule.addListener('onStatusChange', listener);
+    if (statusListeners++ === 0) NativeModule.startStatusUpdates();
+    let removed = false;
+    return {
+      remove: () => {
+        if (removed) return;
+        removed = true;
+        subscription.remove();
+        if (--statusListeners === 0) NativeModule.stopStatusUpdates();
+      },
+    };
+  },
 };
 
 // ============================================================
@@ -238,6 +510,9 @@ const SincproPrinter = {
   bluetooth,
   connection,
   print,
+  events,
+  metrics,
+  trace,
 };
 
 export default SincproPrinter;
@@ -9,7 +9,8 @@
 
 // Main module export
 export { default } from './SincproPrinter';
-export { bluetooth, connection, config, print } from './SincproPrinter';
+export { bluetooth, connection, config, print, events, metrics, trace } from './SincproPrinter';
+export type { Subscription } from './SincproPrinter';
 
 // Type exports
 export * from './types';
@@ -5,3 +5,4 @@
 export * from './bluetooth.types';
 export * from './printer.types';
 export * from './receipt.types';
+export * from './label.types';
@@ -0,0 +1,115 @@
+/**
+ * Label run types for @sincpro/printer-expo
+ */
+
+import type { FontSize, BarcodeType, MediaConfig, PrintJobOptions } from './printer.types';
+
+/**
+ * Label layout: elements (with `{placeholders}` for file imports) plus, for numbered runs,
+ * the fields that carry the serial
+ */
+export interface LabelTemplate {
+  media?: MediaConfig;
+  elements?: LabelElement[];
+  serialFields?: SerialField[];
+}
+
+/**
+ * Label element positioned in dots (discriminated union)
+ */
+export type LabelElement = LabelText | LabelBarcode | LabelQR;
+
+/**
+ * Text at a fixed position
+ */
+export interface LabelText {
+  type: 'text';
+  content?: string;
+  x: number;
+  y: number;
+  fontSize?: FontSize;
+  bold?: boolean;
+}
+
+/**
+ * 1D barcode at a fixed position
+ */
+export interface LabelBarcode {
+  type: 'barcode';
+  data?: string;
+  x: number;
+  y: number;
+  barcodeType?: BarcodeType;
+  width?: number;
+  height?: number;
+}
+
+/**
+ * QR code at a fixed position (static elements only)
+ */
+export interface LabelQR {
+  type: 'qr';
+  data: string;
+  x: number;
+  y: number;
+  size?: number;
+}
+
+/**
+ * Text or barcode showing `prefix + serial + suffix`, the serial zero-padded to `digits`
+ */
+export type SerialField = (LabelText | LabelBarcode) & {
+  prefix?: string;
+  suffix?: string;
+  digits?: number;
+};
+
+/**
+ * Options for printing labels from a CSV/JSON export
+ */
+export interface PrintLabelsFromFileOptions extends PrintJobOptions {
+  format?: 'csv' | 'json';
+  /** Template placeholder → column name; other columns keep their own name */
+  fields?: Record<string, string>;
+  /** Column with the copies of each row */
+  copiesColumn?: string;
+  /** CSV delimiter (default: ',') */
+  delimiter?: string;
+  /** Checkpoint key (default: the uri) */
+  importId?: string;
+  /** Continue after the last printed row of an earlier attempt (default: true) */
+  resume?: boolean;
+}
+
+/**
+ * Result of a file import
+ */
+export interface LabelImportResult {
+  jobId: string;
+  /** Rows skipped because an earlier attempt printed them */
+  resumedFrom: number;
+  /** Rows printed by this call */
+  printed: number;
+}
+
+/**
+ * Event payload for `onLabelProgress`, sent after each label of a file import
+ */
+export interface LabelProgressEvent {
+  importId: string;
+  jobId: string;
+  /** Row index in the file, from 0 */
+  index: number;
+  /** Labels printed by this call so far */
+  printed: number;
+}
+
+/**
+ * Label run options
+ */
+export interface PrintLabelRunOptions extends PrintJobOptions {
+  startSerial?: number;
+  count: number;
+  step?: number;
+  copies?: number;
+}
@@ -3,7 +3,7 @@
  */
 
 /**
- * Printer status from getStatus()
+ * Printer status from getStatus() and `events.onStatusChange()`
  */
 export interface PrinterStatus {
   connectionState: ConnectionState;
@@ -12,6 +12,16 @@ export interface PrinterStatus {
   isOverheated: boolean;
   hasError: boolean;
   errorMessage: string | null;
+  /** Still receiving or composing a job */
+  isBuildingImage: boolean;
+  /** Printing a job from its image buffer */
+  isPrinting: boolean;
+  isCutterJammed: boolean;
+  /** Gap/black mark auto sensing failed */
+  hasSensingError: boolean;
+  isRibbonOut: boolean;
+  /** A peeled label is waiting to be taken */
+  isPausedInPeeler: boolean;
 }
 
 /**
@@ -19,6 +29,25 @@ export interface PrinterStatus {
  */
 export type ConnectionState = 'DISCONNECTED' | 'CONNECTING' | 'CONNECTED' | 'ERROR';
 
+/**
+ * One way to reach a printer, for `connection.connectAny()`
+ */
+export interface ConnectionCandidate {
+  type: 'bluetooth' | 'wifi' | 'usb';
+  /** MAC address (bluetooth) or IP (wifi) */
+  address?: string;
+  /** TCP port for wifi (default: 9100) */
+  port?: number;
+  timeoutMs?: number;
+}
+
+/**
+ * Event payload for `onConnectionStateChange`
+ */
+export interface ConnectionStateEvent {
+  state: ConnectionState;
+}
+
 /**
  * Printer info from getInfo()
  */
@@ -80,6 +109,49 @@ export interface PrinterConfig {
   orientation?: PrintOrientation;
   /** Auto cutter configuration */
   autoCutter?: CutterConfig;
+  /**
+   * Print each job at the fastest speed its content allows, never above `speed`:
+   * text-only jobs run at `speed`, thin barcodes and large images slow down (default: false)
+   */
+  autoSpeed?: boolean;
+}
+
+/**
+ * Pacing of long runs before the print head overheats, for `config.setThermalPolicy()`
+ */
+export interface ThermalPolicy {
+  /** Default: true */
+  enabled?: boolean;
+  /** Slowest speed the run is stepped down to (default: 'slow') */
+  minSpeed?: PrintSpeed;
+  /** Lightest density allowed; omitted keeps the configured density */
+  minDensity?: PrintDensity;
+  /** Pause added between jobs per step, once speed and density are at their floor (default: 250) */
+  gapStepMs?: number;
+  /** Longest pause between jobs (default: 2000) */
+  maxGapMs?: number;
+  /** Time for the head to lose about two thirds of its heat (default: 60000) */
+  coolingMs?: number;
+  /** Dots fed at medium density per cooling time the head takes; learned after an overheat (default: 80000) */
+  heatBudgetDots?: number;
+  /** Jobs between status checks (default: 25) */
+  statusEveryJobs?: number;
+}
+
+/**
+ * Current pacing from `config.getThermalState()`
+ */
+export interface ThermalState {
+  /** 0 = as configured; each level is one step slower */
+  level: number;
+  maxLevel: number;
+  speed: PrintSpeed | null;
+  density: PrintDensity | null;
+  gapMs: number;
+  /** Estimated head heat as a fraction of its budget (1 = about to overheat) */
+  heat: number;
+  overheats: number;
+  labelsPerHour: number;
 }
 
 /**
@@ -130,10 +202,64 @@ export type BarcodeType =
   | 'CODE93'
   | 'CODABAR';
 
+/**
+ * Options shared by every print call
+ */
+export interface PrintJobOptions {
+  /** Job identifier echoed in `onPrintJob` events (generated when omitted) */
+  jobId?: string;
+  /**
+   * Send continuous receipts taller than this many dots in segments cut between
+   * lines, so the printer starts before the whole receipt is sent (0 = off)
+   */
+  segmentDots?: number;
+  /**
+   * Retries with the same key print at most once (kept for 10 minutes).
+   * Without `jobId`, the key is also the job id.
+   */
+  idempotencyKey?: string;
+  /**
+   * Print an `idempotencyKey` again even though an earlier attempt may have printed it.
+   * Set it only after checking the paper (default: false)
+   */
+  resendUncertain?: boolean;
+  /**
+   * Send right away and check the printer afterwards, instead of calling
+   * `getStatus()` first. A printer error found afterwards arrives as a FAILED
+   * `onPrintJob` event with `printerFault: true` (default: false)
+   */
+  verify?: boolean;
+  /**
+   * Reject the job if it has not been sent this many ms after it was queued. A send
+   * stuck in the printer link is aborted so later jobs go on (0 = no deadline)
+   */
+  deadlineMs?: number;
+}
+
+/**
+ * Lifecycle phase of a print job
+ */
+export type PrintJobPhase = 'QUEUED' | 'SENDING' | 'SENT' | 'OUTPUT_COMPLETE' | 'FAILED';
+
+/**
+ * Print job lifecycle event from `events.onPrintJob()`
+ */
+export interface PrintJobEvent {
+  jobId: string;
+  phase: PrintJobPhase;
+  /** Wall clock time of the phase (epoch ms) */
+  timestamp: number;
+  /** Milliseconds since the job was queued */
+  elapsedMs: number;
+  errorMessage: string | null;
+  /** True when a `verify` job failed because of a printer error found after it was sent */
+  printerFault: boolean;
+}
+
 /**
  * Print text options
  */
-export interface PrintTextOptions {
+export interface PrintTextOptions extends PrintJobOptions {
   fontSize?: FontSize;
   alignment?: Alignment;
   bold?: boolean;
@@ -143,7 +269,7 @@ export interface PrintTextOptions {
 /**
  * Print texts options (multiple lines)
  */
-export interface PrintTextsOptions {
+export interface PrintTextsOptions extends PrintJobOptions {
   fontSize?: FontSize;
   media?: MediaConfig;
 }
@@ -151,7 +277,7 @@ export interface PrintTextsOptions {
 /**
  * Print QR options
  */
-export interface PrintQROptions {
+export interface PrintQROptions extends PrintJobOptions {
   size?: number;
   alignment?: Alignment;
   media?: MediaConfig;
@@ -160,7 +286,7 @@ export interface PrintQROptions {
 /**
  * Print barcode options
  */
-export interface PrintBarcodeOptions {
+export interface PrintBarcodeOptions extends PrintJobOptions {
   type?: BarcodeType;
   height?: number;
   alignment?: Alignment;
@@ -170,7 +296,7 @@ export interface PrintBarcodeOptions {
 /**
  * Print image options
  */
-export interface PrintImageOptions {
+export interface PrintImageOptions extends PrintJobOptions {
   alignment?: Alignment;
   media?: MediaConfig;
 }
@@ -178,7 +304,7 @@ export interface PrintImageOptions {
 /**
  * Print PDF options
  */
-export interface PrintPdfOptions {
+export interface PrintPdfOptions extends PrintJobOptions {
   page?: number;
   alignment?: Alignment;
   media?: MediaConfig;
@@ -187,7 +313,7 @@ export interface PrintPdfOptions {
 /**
  * Print key-value options
  */
-export interface PrintKeyValueOptions {
+export interface PrintKeyValueOptions extends PrintJobOptions {
   fontSize?: FontSize;
   bold?: boolean;
   media?: MediaConfig;
@@ -196,7 +322,83 @@ export interface PrintKeyValueOptions {
 /**
  * Print receipt options
  */
-export interface PrintReceiptOptions {
+export interface PrintReceiptOptions extends PrintJobOptions {
+  media?: MediaConfig;
+  copies?: number;
+}
+
+/**
+ * Options for print.reprint(); `jobId` names the new job
+ */
+export interface ReprintOptions extends PrintJobOptions {
+  /** Copies to print, replacing those of the original job (default: 1) */
+  copies?: number;
+}
+
+/**
+ * A recent job that print.reprint() can still send
+ */
+export interface SentJob {
+  jobId: string;
+  sentAtMs: number;
+  /** Labels (or receipts) in one copy */
+  labels: number;
+  /** Memory held by the cached job, images included */
+  retainedBytes: number;
+}
+
+/**
+ * Options for print.prepareReceipt(); job options go to commitPreparedReceipt()
+ */
+export interface PrepareReceiptOptions {
   media?: MediaConfig;
   copies?: number;
 }
+
+/**
+ * Instrumented phases of the print path
+ */
+export type PrintPhase = 'DECODE' | 'LAYOUT' | 'QUEUE' | 'RENDER' | 'TRANSACTION' | 'OUTPUT';
+
+/**
+ * Latency distribution of one phase
+ */
+export interface PhaseStats {
+  count: number;
+  p50Ms: number;
+  p95Ms: number;
+  p99Ms: number;
+  maxMs: number;
+  totalMs: number;
+}
+
+/**
+ * Metrics for one printer (keyed by address)
+ */
+export interface PrinterMetrics {
+  printerId: string;
+  /** Estimated bytes sent (text/code data + 1-bpp image raster) */
+  payloadBytes: number;
+  phases: Partial<Record<PrintPhase, PhaseStats>>;
+}
+
+/**
+ * Metrics snapshot from `metrics.get()`
+ */
+export interface MetricsSnapshot {
+  takenAt: number;
+  printers: PrinterMetrics[];
+}
+
+/**
+ * Trace file written by `trace.stop()`
+ */
+export interface TraceInfo {
+  /** Absolute path of the trace in the app cache directory */
+  path: string;
+  jobs: number;
+  events: number;
+  durationMs: number;
+  /** True when the recording hit its event limit and later commands were dropped */
+  truncated: boolean;
+}